@@ -0,0 +1,38 @@
+package com.yvonne.birdstream.model;
+
+public class BirdAlert {
+    private String alertType;
+    private String species;
+    private String county;
+    private int observedCount;
+    private int expectedCount;
+    private double zScore;
+    private String severity;
+    private long timestamp;
+    private String message;
+    
+    public BirdAlert(String alertType, String species, String county, int observedCount,
+                     int expectedCount, double zScore, String severity, long timestamp,
+                     String message) {
+        this.alertType = alertType;
+        this.species = species;
+        this.county = county;
+        this.observedCount = observedCount;
+        this.expectedCount = expectedCount;
+        this.zScore = zScore;
+        this.severity = severity;
+        this.timestamp = timestamp;
+        this.message = message;
+    }
+    
+    // Getters
+    public String getAlertType() { return alertType; }
+    public String getSpecies() { return species; }
+    public String getCounty() { return county; }
+    public int getObservedCount() { return observedCount; }
+    public int getExpectedCount() { return expectedCount; }
+    public double getZScore() { return zScore; }
+    public String getSeverity() { return severity; }
+    public long getTimestamp() { return timestamp; }
+    public String getMessage() { return message; }
+}
@@ -10,10 +10,17 @@ public class BirdObservation {
     private double longitude;
     private String county;
     private String observerId;
+    private String countyCode; // EBD county code (e.g. US-CA-073), null when the source has none
     
     public BirdObservation(String id, String commonName, int count, 
                           LocalDateTime observationDate, double latitude, 
                           double longitude, String county, String observerId) {
+        this(id, commonName, count, observationDate, latitude, longitude, county, observerId, null);
+    }
+    
+    public BirdObservation(String id, String commonName, int count, 
+                          LocalDateTime observationDate, double latitude, 
+                          double longitude, String county, String observerId, String countyCode) {
         this.id = id;
         this.commonName = commonName;
         this.count = count;
@@ -22,6 +29,7 @@ public class BirdObservation {
         this.longitude = longitude;
         this.county = county;
         this.observerId = observerId;
+        this.countyCode = countyCode;
     }
     
     // Getters
@@ -33,4 +41,5 @@ public class BirdObservation {
     public double getLongitude() { return longitude; }
     public String getCounty() { return county; }
     public String getObserverId() { return observerId; }
+    public String getCountyCode() { return countyCode; }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.yvonne.birdstream.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+/**
+ * Hand-written JSON writers for observations and alerts.
+ *
+ * Fields are written straight to a JsonGenerator, so there is no reflective
+ * bean introspection or serializer lookup on the first record - only jackson-core
+ * classes are needed, and warmUp() loads those ahead of time.
+ */
+public final class JsonCodec {
+    
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    
+    private JsonCodec() {}
+    
+    public static String writeObservation(BirdObservation obs, String dataType, long timestamp) {
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("id", obs.getId());
+            json.writeStringField("commonName", obs.getCommonName());
+            json.writeNumberField("count", obs.getCount());
+            json.writeStringField("observationDate", obs.getObservationDate().toString());
+            json.writeNumberField("latitude", obs.getLatitude());
+            json.writeNumberField("longitude", obs.getLongitude());
+            json.writeStringField("county", obs.getCounty());
+            if (obs.getCountyCode() != null) {
+                json.writeStringField("countyCode", obs.getCountyCode());
+            }
+            json.writeStringField("observerId", obs.getObserverId());
+            json.writeStringField("dataType", dataType); // HISTORICAL or SYNTHETIC
+            json.writeNumberField("timestamp", timestamp);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+    
+    public static String writeAlert(BirdAlert alert) {
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("alertType", alert.getAlertType());
+            json.writeStringField("species", alert.getSpecies());
+            json.writeStringField("county", alert.getCounty());
+            json.writeNumberField("observedCount", alert.getObservedCount());
+            json.writeNumberField("expectedCount", alert.getExpectedCount());
+            json.writeNumberField("zScore", alert.getZScore());
+            json.writeStringField("severity", alert.getSeverity());
+            json.writeNumberField("timestamp", alert.getTimestamp());
+            json.writeStringField("message", alert.getMessage());
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Runs one write/read round trip so the generator, parser and tree classes are
+     * loaded and initialized before the first real record (and captured by a CDS
+     * training run).
+     */
+    public static void warmUp(ObjectMapper mapper) {
+        BirdObservation sample = new BirdObservation("WARMUP", "Mourning Dove", 1,
+            LocalDateTime.of(2020, 4, 1, 8, 0), 32.7, -117.1, "San Diego", "WARMUP_OBSERVER");
+        BirdAlert alert = new BirdAlert("UNUSUAL_COUNT", "Mourning Dove", "San Diego", 1, 1, 0.0,
+            "MEDIUM", 0L, "warm-up");
+        
+        try {
+            mapper.readTree(writeObservation(sample, "HISTORICAL", 0L));
+            mapper.readTree(writeAlert(alert));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
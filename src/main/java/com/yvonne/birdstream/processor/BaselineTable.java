@@ -0,0 +1,40 @@
+package com.yvonne.birdstream.processor;
+
+/**
+ * Per species_county baseline statistics used by the anomaly detector: the flat
+ * mean/std dev and the TrendModel state that gives the expected count.
+ * Implementations decide where the state lives (on-heap objects or off-heap memory).
+ */
+public interface BaselineTable extends AutoCloseable {
+
+    /**
+     * Records one historical count for the key, observed in the given year and month.
+     *
+     * @return true exactly once per key, when the baseline first has enough data (used for logging)
+     */
+    boolean addHistoricalObservation(String key, int year, int month, int count);
+
+    boolean hasEnoughData(String key);
+
+    double getMean(String key);
+
+    double getStdDev(String key);
+
+    long getObservationCount(String key);
+
+    /** Trend prediction for the year and season, or the flat mean until the trend model has warmed up. */
+    double getExpectedCount(String key, int year, int month);
+
+    /** Spread of counts around getExpectedCount: the trend's residual std dev, or getStdDev until it has warmed up. */
+    double getExpectedStdDev(String key);
+
+    /**
+     * Forces persisted state to storage. Called right before Kafka offsets are committed.
+     * This is not a snapshot: a memory-mapped table can reach storage with updates from
+     * records after the commit, which a restart replays and counts again.
+     */
+    default void flush() {}
+
+    @Override
+    default void close() {}
+}
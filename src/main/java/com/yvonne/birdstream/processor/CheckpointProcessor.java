@@ -0,0 +1,47 @@
+package com.yvonne.birdstream.processor;
+
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+
+import java.time.Duration;
+import java.util.function.LongPredicate;
+
+/**
+ * Ties state checkpoints to Kafka offset commits.
+ *
+ * Each task schedules a wall-clock punctuation; when the checkpoint callback reports
+ * that it saved state, the punctuation requests a commit. The stream thread commits
+ * after punctuating and before processing more records, so committed offsets match
+ * the saved duplicate filter (see BaselineTable.flush for what baselines guarantee).
+ * Records pass through untouched.
+ */
+public class CheckpointProcessor implements Processor<String, String, Void, Void> {
+
+    private final Duration interval;
+    private final LongPredicate checkpoint;
+
+    /**
+     * @param interval   how often to checkpoint and commit
+     * @param checkpoint saves state for the given wall-clock time; returns true if it did
+     */
+    public CheckpointProcessor(Duration interval, LongPredicate checkpoint) {
+        this.interval = interval;
+        this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        context.schedule(interval, PunctuationType.WALL_CLOCK_TIME, timestamp -> {
+            if (checkpoint.test(timestamp)) {
+                context.commit();
+            }
+        });
+    }
+
+    @Override
+    public void process(Record<String, String> record) {
+        // Nothing to do per record
+    }
+}
@@ -0,0 +1,145 @@
+package com.yvonne.birdstream.processor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Drops observations that were already seen, before they reach updateBaseline.
+ *
+ * An observation is a duplicate if its ID was seen, or if the same observer reported
+ * the same species in the same ~1 km location cell on the same date (shared checklists).
+ * Both keys live in a RotatingBloomFilter with a fixed memory budget, so a small
+ * fraction of unique observations can be dropped as false positives. Only the handful
+ * of fields needed for the keys are read, with a streaming parser and no JsonNode tree.
+ */
+public class DuplicateObservationFilter implements AutoCloseable {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final double LOCATION_CELL_DEGREES = 0.01;
+    private static final int GENERATIONS = 2;
+    private static final int KEYS_PER_OBSERVATION = 2;
+
+    private final RotatingBloomFilter filter;
+    private final Path checkpointFile;
+
+    private long accepted = 0;
+    private long duplicates = 0;
+
+    /**
+     * @param falsePositiveRate  overall chance of dropping a unique observation
+     * @param memoryBytes        fixed memory budget for the filter
+     * @param rotationMillis     how long a filter generation keeps accepting new keys
+     * @param checkpointFile     where checkpoint() persists the filter, or null to keep it in memory only
+     */
+    public DuplicateObservationFilter(double falsePositiveRate, long memoryBytes, long rotationMillis,
+                                      Path checkpointFile) {
+        // Every lookup probes each generation for each key, so split the rate across those probes
+        double perProbeRate = falsePositiveRate / (GENERATIONS * KEYS_PER_OBSERVATION);
+        this.filter = new RotatingBloomFilter(memoryBytes, GENERATIONS, perProbeRate, rotationMillis);
+        this.checkpointFile = checkpointFile;
+
+        System.out.println("Duplicate filter: " + (memoryBytes / (1024 * 1024)) + " MB, " +
+                         filter.getCapacityPerGeneration() + " keys per generation, " +
+                         filter.getHashFunctions() + " hash functions");
+
+        if (checkpointFile == null) {
+            return;
+        }
+
+        try {
+            if (filter.load(checkpointFile)) {
+                System.out.println("Restored duplicate filter from " + checkpointFile);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not restore duplicate filter, starting empty: " + e.getMessage());
+        }
+    }
+
+    /** Returns true the first time an observation is seen, false for (probable) duplicates. */
+    public boolean isFirstSighting(String observationJson) {
+        String id = null, species = null, observer = null, date = null;
+        double latitude = Double.NaN, longitude = Double.NaN;
+
+        try (JsonParser parser = jsonFactory.createParser(observationJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return true;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id": id = parser.getValueAsString(); break;
+                    case "commonName": species = parser.getValueAsString(); break;
+                    case "observerId": observer = parser.getValueAsString(); break;
+                    case "observationDate": date = parser.getValueAsString(); break;
+                    case "latitude": latitude = parser.getValueAsDouble(Double.NaN); break;
+                    case "longitude": longitude = parser.getValueAsDouble(Double.NaN); break;
+                    default:
+                        if (value.isStructStart()) parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return true; // Let processObservation report malformed input
+        }
+
+        String idKey = id == null ? null : "id|" + id;
+        String sightingKey = sightingKey(observer, latitude, longitude, date, species);
+
+        synchronized (this) {
+            if ((idKey != null && filter.mightContain(idKey)) ||
+                (sightingKey != null && filter.mightContain(sightingKey))) {
+                duplicates++;
+                if (duplicates % 1000 == 1) {
+                    System.out.println("Dropped duplicate observation " + id +
+                                     " (" + duplicates + " duplicates, " + accepted + " accepted so far)");
+                }
+                return false;
+            }
+
+            if (idKey != null) filter.add(idKey);
+            if (sightingKey != null) filter.add(sightingKey);
+            accepted++;
+            return true;
+        }
+    }
+
+    /**
+     * Key shared by every report of one sighting: observer, ~1 km location cell, calendar
+     * date and species. Returns null when any of those fields is missing.
+     */
+    static String sightingKey(String observer, double latitude, double longitude, String date, String species) {
+        if (species == null || observer == null || date == null || date.length() < 10 ||
+            Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return null;
+        }
+        return "obs|" + observer + "|" +
+               (long) Math.floor(latitude / LOCATION_CELL_DEGREES) + "|" +
+               (long) Math.floor(longitude / LOCATION_CELL_DEGREES) + "|" +
+               date.substring(0, 10) + "|" + species;
+    }
+
+    /**
+     * Saves the filter. The processor calls this after BaselineTable.flush and right
+     * before committing offsets, so the saved filter matches the committed offsets and
+     * replayed records are not dropped as duplicates. If the process dies between the
+     * save and the commit, the records in between are replayed and dropped. Baselines
+     * have no such match: see BaselineTable.flush.
+     */
+    public void checkpoint() {
+        if (checkpointFile == null) return;
+        try {
+            filter.save(checkpointFile);
+        } catch (IOException e) {
+            System.err.println("Could not checkpoint duplicate filter: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        checkpoint();
+    }
+}
@@ -0,0 +1,81 @@
+package com.yvonne.birdstream.processor;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Original on-heap baselines: one SpeciesBaseline object (plus trend state) per key
+public class HeapBaselineTable implements BaselineTable {
+
+    private final Map<String, Entry> baselines = new ConcurrentHashMap<>();
+    private final TrendModel trend;
+
+    private static final class Entry {
+        final SpeciesBaseline baseline = new SpeciesBaseline();
+        final MemorySegment trendState;
+
+        Entry(MemorySegment trendState) {
+            this.trendState = trendState;
+        }
+    }
+
+    public HeapBaselineTable(TrendModel trend) {
+        this.trend = trend;
+    }
+
+    @Override
+    public boolean addHistoricalObservation(String key, int year, int month, int count) {
+        Entry entry = baselines.computeIfAbsent(key, _ -> new Entry(trend.newState()));
+        synchronized (entry) {
+            trend.update(entry.trendState, year, month, count);
+            entry.baseline.addHistoricalObservation(count);
+            return entry.baseline.shouldLogBaseline();
+        }
+    }
+
+    @Override
+    public boolean hasEnoughData(String key) {
+        Entry entry = baselines.get(key);
+        return entry != null && entry.baseline.hasEnoughData();
+    }
+
+    @Override
+    public double getMean(String key) {
+        Entry entry = baselines.get(key);
+        return entry == null ? 0.0 : entry.baseline.getMean();
+    }
+
+    @Override
+    public double getStdDev(String key) {
+        Entry entry = baselines.get(key);
+        return entry == null ? 1.0 : entry.baseline.getStdDev();
+    }
+
+    @Override
+    public long getObservationCount(String key) {
+        Entry entry = baselines.get(key);
+        return entry == null ? 0 : entry.baseline.getObservationCount();
+    }
+
+    @Override
+    public double getExpectedCount(String key, int year, int month) {
+        Entry entry = baselines.get(key);
+        if (entry == null) return 0.0;
+        synchronized (entry) {
+            return trend.isReady(entry.trendState)
+                ? trend.predict(entry.trendState, year, month)
+                : entry.baseline.getMean();
+        }
+    }
+
+    @Override
+    public double getExpectedStdDev(String key) {
+        Entry entry = baselines.get(key);
+        if (entry == null) return 1.0;
+        synchronized (entry) {
+            return trend.isReady(entry.trendState)
+                ? trend.getResidualStdDev(entry.trendState)
+                : entry.baseline.getStdDev();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.yvonne.birdstream.processor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Baseline table stored outside the Java heap in a single MemorySegment.
+ *
+ * Open-addressing hash table (linear probing) of fixed-size records:
+ *
+ *   keyId long | count long | mean double | m2 double | flags long | trend state   (240 bytes)
+ *
+ * Keys are reduced to a 64-bit hash, so the GC only ever sees one segment no matter
+ * how many keys are stored. Mean and variance are kept with Welford updates instead
+ * of a list of raw counts, and the key's TrendModel state lives in the same record.
+ * With a file path the segment is a memory-mapped file and baselines and trends
+ * survive restarts.
+ *
+ * The table does not grow. Once it reaches its load factor, observations for new keys
+ * are dropped (and counted in getRejectedKeys) while existing keys keep updating.
+ */
+public class OffHeapBaselineTable implements BaselineTable {
+
+    private static final long KEY_OFFSET = 0;
+    private static final long COUNT_OFFSET = 8;
+    private static final long MEAN_OFFSET = 16;
+    private static final long M2_OFFSET = 24;
+    private static final long FLAGS_OFFSET = 32;
+    private static final long TREND_OFFSET = 40;
+    private static final long RECORD_SIZE = TREND_OFFSET + TrendModel.STATE_BYTES;
+
+    private static final long FLAG_LOGGED = 1;
+
+    // File header: magic, capacity, size
+    private static final long HEADER_SIZE = 24;
+    private static final long MAGIC = 0x4253424153454C33L; // "BSBASEL3"
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    // Same thresholds as SpeciesBaseline
+    private static final int MIN_OBSERVATIONS = 20;
+    private static final double MIN_STD_DEV = 0.5;
+
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final long capacity;
+    private final long mask;
+    private final FileChannel channel;
+    private final TrendModel trend;
+    private long size;
+    private long rejectedKeys;
+
+    /** In-memory table sized for the expected number of keys. */
+    public OffHeapBaselineTable(long expectedKeys, TrendModel trend) {
+        this.trend = trend;
+        this.capacity = capacityFor(expectedKeys);
+        this.mask = capacity - 1;
+        this.arena = Arena.ofShared();
+        this.segment = arena.allocate(HEADER_SIZE + capacity * RECORD_SIZE, Long.BYTES);
+        this.channel = null;
+        writeHeader();
+    }
+
+    /**
+     * File-backed table. An existing file is reopened with the capacity it was created with;
+     * otherwise a new file is sized for the expected number of keys.
+     */
+    public OffHeapBaselineTable(Path file, long expectedKeys, TrendModel trend) throws IOException {
+        this.trend = trend;
+        this.channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.arena = Arena.ofShared();
+
+        try {
+            boolean existing = channel.size() >= HEADER_SIZE;
+            long fileCapacity = capacityFor(expectedKeys);
+            if (existing) {
+                MemorySegment header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE, arena);
+                if (header.get(ValueLayout.JAVA_LONG, 0) != MAGIC) {
+                    throw new IOException("Not a baseline table file, or one written by an older version: " + file);
+                }
+                fileCapacity = header.get(ValueLayout.JAVA_LONG, 8);
+            }
+
+            this.capacity = fileCapacity;
+            this.mask = capacity - 1;
+            this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity * RECORD_SIZE, arena);
+
+            if (existing) {
+                this.size = segment.get(ValueLayout.JAVA_LONG, 16);
+                System.out.println("Reopened baseline table " + file + " with " + size + " keys");
+            } else {
+                writeHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long capacityFor(long expectedKeys) {
+        long needed = (long) Math.ceil(Math.max(expectedKeys, 16) / MAX_LOAD_FACTOR);
+        return Long.highestOneBit(needed - 1) << 1;
+    }
+
+    private void writeHeader() {
+        segment.set(ValueLayout.JAVA_LONG, 0, MAGIC);
+        segment.set(ValueLayout.JAVA_LONG, 8, capacity);
+        segment.set(ValueLayout.JAVA_LONG, 16, size);
+    }
+
+    @Override
+    public synchronized boolean addHistoricalObservation(String key, int year, int month, int count) {
+        long record = findOrInsert(hash(key));
+        if (record < 0) {
+            return false; // Table full, key not tracked
+        }
+
+        trend.update(trendState(record), year, month, count);
+
+        long n = segment.get(ValueLayout.JAVA_LONG, record + COUNT_OFFSET) + 1;
+        double mean = segment.get(ValueLayout.JAVA_DOUBLE, record + MEAN_OFFSET);
+        double m2 = segment.get(ValueLayout.JAVA_DOUBLE, record + M2_OFFSET);
+
+        double delta = count - mean;
+        mean += delta / n;
+        m2 += delta * (count - mean);
+
+        segment.set(ValueLayout.JAVA_LONG, record + COUNT_OFFSET, n);
+        segment.set(ValueLayout.JAVA_DOUBLE, record + MEAN_OFFSET, mean);
+        segment.set(ValueLayout.JAVA_DOUBLE, record + M2_OFFSET, m2);
+
+        long flags = segment.get(ValueLayout.JAVA_LONG, record + FLAGS_OFFSET);
+        if (n >= MIN_OBSERVATIONS && (flags & FLAG_LOGGED) == 0) {
+            segment.set(ValueLayout.JAVA_LONG, record + FLAGS_OFFSET, flags | FLAG_LOGGED);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean hasEnoughData(String key) {
+        long record = find(hash(key));
+        return record >= 0 && segment.get(ValueLayout.JAVA_LONG, record + COUNT_OFFSET) >= MIN_OBSERVATIONS;
+    }
+
+    @Override
+    public synchronized double getMean(String key) {
+        long record = find(hash(key));
+        return record < 0 ? 0.0 : segment.get(ValueLayout.JAVA_DOUBLE, record + MEAN_OFFSET);
+    }
+
+    @Override
+    public synchronized double getStdDev(String key) {
+        long record = find(hash(key));
+        if (record < 0) return 1.0;
+
+        long n = segment.get(ValueLayout.JAVA_LONG, record + COUNT_OFFSET);
+        double variance = segment.get(ValueLayout.JAVA_DOUBLE, record + M2_OFFSET) / n;
+        return Math.max(Math.sqrt(variance), MIN_STD_DEV);
+    }
+
+    @Override
+    public synchronized long getObservationCount(String key) {
+        long record = find(hash(key));
+        return record < 0 ? 0 : segment.get(ValueLayout.JAVA_LONG, record + COUNT_OFFSET);
+    }
+
+    @Override
+    public synchronized double getExpectedCount(String key, int year, int month) {
+        long record = find(hash(key));
+        if (record < 0) return 0.0;
+
+        MemorySegment state = trendState(record);
+        return trend.isReady(state)
+            ? trend.predict(state, year, month)
+            : segment.get(ValueLayout.JAVA_DOUBLE, record + MEAN_OFFSET);
+    }
+
+    @Override
+    public synchronized double getExpectedStdDev(String key) {
+        long record = find(hash(key));
+        if (record < 0) return 1.0;
+
+        MemorySegment state = trendState(record);
+        return trend.isReady(state) ? trend.getResidualStdDev(state) : getStdDev(key);
+    }
+
+    private MemorySegment trendState(long record) {
+        return segment.asSlice(record + TREND_OFFSET, TrendModel.STATE_BYTES);
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    /** Bytes of native or mapped memory the table occupies, header included. */
+    public long byteSize() {
+        return segment.byteSize();
+    }
+
+    /** Number of observations dropped because their key did not fit in the table. */
+    public synchronized long getRejectedKeys() {
+        return rejectedKeys;
+    }
+
+    // Returns the record offset for keyId, or -1 when absent
+    private long find(long keyId) {
+        long slot = keyId & mask;
+        while (true) {
+            long record = HEADER_SIZE + slot * RECORD_SIZE;
+            long stored = segment.get(ValueLayout.JAVA_LONG, record + KEY_OFFSET);
+            if (stored == keyId) return record;
+            if (stored == 0) return -1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Returns the record offset for keyId, inserting it if there is room, or -1 when the table is full
+    private long findOrInsert(long keyId) {
+        long slot = keyId & mask;
+        while (true) {
+            long record = HEADER_SIZE + slot * RECORD_SIZE;
+            long stored = segment.get(ValueLayout.JAVA_LONG, record + KEY_OFFSET);
+            if (stored == keyId) return record;
+            if (stored == 0) {
+                if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+                    if (rejectedKeys++ == 0) {
+                        System.err.println("Off-heap baseline table is full (" + size + " keys); ignoring new keys. " +
+                                         "Increase -Dbirdstream.baselines.keys and rebuild the table file.");
+                    }
+                    return -1;
+                }
+                segment.set(ValueLayout.JAVA_LONG, record + KEY_OFFSET, keyId);
+                trend.initialize(trendState(record));
+                size++;
+                segment.set(ValueLayout.JAVA_LONG, 16, size);
+                return record;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // 64-bit FNV-1a over the key's chars, finished with the MurmurHash3 mixer; 0 marks an empty slot
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (channel != null) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (rejectedKeys > 0) {
+            System.err.println("Off-heap baseline table dropped " + rejectedKeys + " observations for keys that did not fit");
+        }
+        try {
+            if (channel != null) {
+                segment.force();
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            arena.close();
+        }
+    }
+}
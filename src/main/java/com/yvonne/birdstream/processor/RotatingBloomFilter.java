@@ -0,0 +1,202 @@
+package com.yvonne.birdstream.processor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Bloom filter split into generations that age out over time.
+ *
+ * Lookups check every generation; inserts go to the newest one. When the newest
+ * generation is full (its insertions reach the capacity that keeps the target
+ * false-positive rate) or the rotation interval passes, the oldest generation is
+ * cleared and becomes the newest. Total memory is fixed at construction.
+ */
+public class RotatingBloomFilter {
+
+    private static final int MAGIC = 0x42534246; // "BSBF"
+
+    private final long[][] generations;
+    private final long bitsPerGeneration;
+    private final int hashFunctions;
+    private final long capacityPerGeneration;
+    private final long rotationIntervalMillis;
+
+    private final long[] insertions;
+    private int current = 0;
+    private long lastRotation;
+
+    // Copy of the bit arrays written by save(), allocated on first use and reused
+    private final Object saveLock = new Object();
+    private long[][] snapshot;
+
+    /**
+     * @param memoryBytes            total budget for all generations
+     * @param generationCount        number of generations (at least 2)
+     * @param falsePositiveRate      target false-positive rate per generation
+     * @param rotationIntervalMillis rotate at least this often
+     */
+    public RotatingBloomFilter(long memoryBytes, int generationCount, double falsePositiveRate,
+                               long rotationIntervalMillis) {
+        int count = Math.max(2, generationCount);
+        long wordsPerGeneration = Math.max(1, memoryBytes / count / Long.BYTES);
+        if (wordsPerGeneration > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter generation too large: " + memoryBytes + " bytes");
+        }
+
+        this.generations = new long[count][(int) wordsPerGeneration];
+        this.bitsPerGeneration = wordsPerGeneration * Long.SIZE;
+
+        // Standard Bloom sizing: n = -m ln^2(2) / ln(p), k = (m / n) ln(2)
+        double ln2 = Math.log(2);
+        this.capacityPerGeneration = Math.max(1, (long) (-bitsPerGeneration * ln2 * ln2 / Math.log(falsePositiveRate)));
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitsPerGeneration / capacityPerGeneration * ln2));
+
+        this.rotationIntervalMillis = rotationIntervalMillis;
+        this.insertions = new long[count];
+        this.lastRotation = System.currentTimeMillis();
+    }
+
+    /** Returns true if the key may have been added before. */
+    public synchronized boolean mightContain(String key) {
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (long[] bits : generations) {
+            if (contains(bits, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void add(String key) {
+        rotateIfNeeded();
+
+        long h1 = hash(key, 0x9E3779B97F4A7C15L);
+        long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+        long[] bits = generations[current];
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitsPerGeneration);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        insertions[current]++;
+    }
+
+    private boolean contains(long[] bits, long h1, long h2) {
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitsPerGeneration);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rotateIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (insertions[current] < capacityPerGeneration && now - lastRotation < rotationIntervalMillis) {
+            return;
+        }
+
+        current = (current + 1) % generations.length;
+        Arrays.fill(generations[current], 0L);
+        insertions[current] = 0;
+        lastRotation = now;
+    }
+
+    // 64-bit FNV-1a with a seed, finished with the MurmurHash3 mixer
+    private static long hash(String key, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public long getCapacityPerGeneration() {
+        return capacityPerGeneration;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * Writes the filter to a temporary file and atomically moves it into place.
+     * Only the copy into a snapshot holds the filter's lock; lookups and inserts
+     * continue while the snapshot is written.
+     */
+    public void save(Path file) throws IOException {
+        synchronized (saveLock) {
+            if (snapshot == null) {
+                snapshot = new long[generations.length][generations[0].length];
+            }
+
+            long[] savedInsertions;
+            int savedCurrent;
+            long savedRotation;
+            synchronized (this) {
+                for (int g = 0; g < generations.length; g++) {
+                    System.arraycopy(generations[g], 0, snapshot[g], 0, generations[g].length);
+                }
+                savedInsertions = insertions.clone();
+                savedCurrent = current;
+                savedRotation = lastRotation;
+            }
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(snapshot.length);
+                out.writeInt(snapshot[0].length);
+                out.writeInt(savedCurrent);
+                out.writeLong(savedRotation);
+                for (int g = 0; g < snapshot.length; g++) {
+                    out.writeLong(savedInsertions[g]);
+                    for (long word : snapshot[g]) {
+                        out.writeLong(word);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Restores a checkpoint written by save(). Returns false, leaving the filter empty,
+     * when the file is missing or was written with a different memory budget.
+     */
+    public synchronized boolean load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != generations.length || in.readInt() != generations[0].length) {
+                return false;
+            }
+            current = in.readInt();
+            lastRotation = in.readLong();
+            for (int g = 0; g < generations.length; g++) {
+                insertions[g] = in.readLong();
+                long[] bits = generations[g];
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] = in.readLong();
+                }
+            }
+        }
+        return true;
+    }
+}
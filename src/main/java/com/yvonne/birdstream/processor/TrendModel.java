@@ -0,0 +1,189 @@
+package com.yvonne.birdstream.processor;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Online expected-count model for species_county keys.
+ *
+ * Recursive least squares over a straight line in year plus season indicators.
+ * The year term is the same linear fit as prototyping/regression_prototype.js;
+ * the season indicators are added on top of it:
+ *
+ *   count ~ b0 + b1*t + b2*spring + b3*summer + b4*fall,   t = (year - 2015) / 10
+ *
+ * predict() clamps the year to the first and last year the key has seen, so a
+ * stream running past the historical data gets the trend's value at its last
+ * year instead of an extrapolated line.
+ *
+ * Each update costs O(features^2) and no observations are stored, so the model
+ * keeps up with the stream instead of needing offline retraining.
+ *
+ * The model holds no per-key data. Each key's state is STATE_BYTES of doubles in a
+ * MemorySegment (a heap array or a slice of an off-heap baseline record):
+ *
+ *   theta[5] | P upper triangle[15] | residual sum of squares | weight | updates | first year | last year
+ *
+ * The residual sum of squares is the weighted squared error of the fit, so
+ * getResidualStdDev is the spread of counts around predict(), not around the flat mean.
+ */
+public class TrendModel {
+
+    private static final int FEATURES = 5;
+    private static final int REFERENCE_YEAR = 2015;
+    private static final double INITIAL_COVARIANCE = 1000.0; // Weak prior: coefficients start near 0
+    private static final int MIN_UPDATES = 20; // Same warm-up as SpeciesBaseline
+    private static final double MIN_STD_DEV = 0.5; // Same floor as SpeciesBaseline
+
+    // Forgetting is skipped while P is this large, so directions the data never
+    // excites (an unseen season) cannot blow P up to infinity
+    private static final double MAX_COVARIANCE_TRACE = FEATURES * INITIAL_COVARIANCE;
+
+    // State layout, in doubles
+    private static final int THETA = 0;
+    private static final int COVARIANCE = THETA + FEATURES;
+    private static final int RESIDUAL_SS = COVARIANCE + FEATURES * (FEATURES + 1) / 2;
+    private static final int WEIGHT = RESIDUAL_SS + 1;
+    private static final int UPDATES = WEIGHT + 1;
+    private static final int FIRST_YEAR = UPDATES + 1;
+    private static final int LAST_YEAR = FIRST_YEAR + 1;
+    private static final int STATE_DOUBLES = LAST_YEAR + 1;
+
+    public static final long STATE_BYTES = STATE_DOUBLES * Double.BYTES;
+
+    private final double forgetting;
+
+    /**
+     * @param forgetting RLS forgetting factor in (0, 1]; 1.0 weights all history equally,
+     *                   smaller values let the trend follow recent years more closely
+     */
+    public TrendModel(double forgetting) {
+        if (!(forgetting > 0.0 && forgetting <= 1.0)) {
+            throw new IllegalArgumentException("Trend forgetting factor must be in (0, 1], got " + forgetting);
+        }
+        this.forgetting = forgetting;
+    }
+
+    /** Allocates and initializes state for one key on the heap. */
+    public MemorySegment newState() {
+        MemorySegment state = MemorySegment.ofArray(new double[STATE_DOUBLES]);
+        initialize(state);
+        return state;
+    }
+
+    /** Resets STATE_BYTES at the start of the segment to an untrained model. */
+    public void initialize(MemorySegment state) {
+        state.asSlice(0, STATE_BYTES).fill((byte) 0);
+        for (int i = 0; i < FEATURES; i++) {
+            set(state, covarianceIndex(i, i), INITIAL_COVARIANCE);
+        }
+    }
+
+    public void update(MemorySegment state, int year, int month, int count) {
+        double[] x = features(year, month);
+
+        double trace = 0.0;
+        for (int i = 0; i < FEATURES; i++) {
+            trace += get(state, covarianceIndex(i, i));
+        }
+        double lambda = trace < MAX_COVARIANCE_TRACE ? forgetting : 1.0;
+
+        // px = P x, denominator = lambda + x' P x
+        double[] px = new double[FEATURES];
+        double denominator = lambda;
+        for (int i = 0; i < FEATURES; i++) {
+            double sum = 0.0;
+            for (int j = 0; j < FEATURES; j++) {
+                sum += get(state, covarianceIndex(i, j)) * x[j];
+            }
+            px[i] = sum;
+            denominator += x[i] * sum;
+        }
+
+        double error = count - dot(state, x);
+
+        // Gain k = px / denominator; theta += k * error; P = (P - k px') / lambda (symmetric, upper triangle only)
+        for (int i = 0; i < FEATURES; i++) {
+            double gain = px[i] / denominator;
+            set(state, THETA + i, get(state, THETA + i) + gain * error);
+            for (int j = i; j < FEATURES; j++) {
+                int index = covarianceIndex(i, j);
+                set(state, index, (get(state, index) - gain * px[j]) / lambda);
+            }
+        }
+
+        // Exact RLS recursion for the weighted residual sum of squares:
+        // prior error times posterior error, where posterior error = error * lambda / denominator
+        set(state, RESIDUAL_SS, lambda * get(state, RESIDUAL_SS) + error * error * lambda / denominator);
+        set(state, WEIGHT, lambda * get(state, WEIGHT) + 1.0);
+        if (get(state, UPDATES) == 0.0) {
+            set(state, FIRST_YEAR, year);
+            set(state, LAST_YEAR, year);
+        } else {
+            set(state, FIRST_YEAR, Math.min(get(state, FIRST_YEAR), year));
+            set(state, LAST_YEAR, Math.max(get(state, LAST_YEAR), year));
+        }
+        set(state, UPDATES, get(state, UPDATES) + 1.0);
+    }
+
+    /** Expected count, with the year held to the range the key has been trained on. */
+    public double predict(MemorySegment state, int year, int month) {
+        int fittedYear = (int) Math.min(Math.max(year, get(state, FIRST_YEAR)), get(state, LAST_YEAR));
+        return Math.max(0.0, dot(state, features(fittedYear, month)));
+    }
+
+    /** Standard deviation of counts around the fitted trend, after removing the model's degrees of freedom. */
+    public double getResidualStdDev(MemorySegment state) {
+        double degreesOfFreedom = Math.max(get(state, WEIGHT) - FEATURES, 1.0);
+        return Math.max(Math.sqrt(get(state, RESIDUAL_SS) / degreesOfFreedom), MIN_STD_DEV);
+    }
+
+    public boolean isReady(MemorySegment state) {
+        return getUpdateCount(state) >= MIN_UPDATES;
+    }
+
+    public long getUpdateCount(MemorySegment state) {
+        return (long) get(state, UPDATES);
+    }
+
+    public double getForgetting() {
+        return forgetting;
+    }
+
+    private static double[] features(int year, int month) {
+        double t = (year - REFERENCE_YEAR) / 10.0;
+        return new double[] {
+            1.0,
+            t,
+            month >= 3 && month <= 5 ? 1.0 : 0.0,  // Spring
+            month >= 6 && month <= 8 ? 1.0 : 0.0,  // Summer
+            month >= 9 && month <= 11 ? 1.0 : 0.0  // Fall (Winter is the reference season)
+        };
+    }
+
+    private static double dot(MemorySegment state, double[] x) {
+        double sum = 0.0;
+        for (int i = 0; i < FEATURES; i++) {
+            sum += get(state, THETA + i) * x[i];
+        }
+        return sum;
+    }
+
+    // Index of P[i][j] in the packed upper triangle
+    private static int covarianceIndex(int i, int j) {
+        if (i > j) {
+            int swap = i;
+            i = j;
+            j = swap;
+        }
+        return COVARIANCE + i * FEATURES - i * (i - 1) / 2 + (j - i);
+    }
+
+    private static double get(MemorySegment state, int index) {
+        return state.getAtIndex(ValueLayout.JAVA_DOUBLE, index);
+    }
+
+    private static void set(MemorySegment state, int index, double value) {
+        state.setAtIndex(ValueLayout.JAVA_DOUBLE, index, value);
+    }
+}
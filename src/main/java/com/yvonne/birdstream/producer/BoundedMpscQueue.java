@@ -0,0 +1,85 @@
+package com.yvonne.birdstream.producer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free bounded queue for many producers and a single consumer.
+ *
+ * Array ring buffer where each slot carries a sequence number (Vyukov's bounded
+ * queue): producers claim a slot with one CAS on the tail, and the consumer owns
+ * the head outright, so neither side ever takes a lock. offer() returns false
+ * when the queue is full, which is how callers apply backpressure.
+ */
+final class BoundedMpscQueue<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final int capacity;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0; // Written only by the consumer
+
+    BoundedMpscQueue(int requestedCapacity) {
+        int size = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Any thread. Returns false if the queue is full. */
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.set(index, element);
+                    sequences.set(index, position + 1); // Publish to the consumer
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false; // Slot still holds an element from the previous lap
+            }
+            // Another producer claimed this slot first; retry with the new tail
+        }
+    }
+
+    /** Consumer thread only. Returns null if the queue is empty. */
+    E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null; // Not yet published
+        }
+
+        E element = buffer.get(index);
+        buffer.set(index, null);
+        sequences.set(index, position + capacity); // Hand the slot back to producers
+        head = position + 1;
+        return element;
+    }
+
+    /** Consumer thread only. True if poll() would return null right now. */
+    boolean isEmpty() {
+        long position = head;
+        return sequences.get((int) (position & mask)) != position + 1;
+    }
+
+    int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -3,22 +3,28 @@ package com.yvonne.birdstream.producer;
 
 import com.opencsv.CSVReader;
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.io.BufferedWriter;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 import com.yvonne.birdstream.model.BirdObservation; 
+import com.yvonne.birdstream.model.JsonCodec;
 import com.yvonne.birdstream.model.LocationData;
+import com.yvonne.birdstream.store.ObservationStoreWriter;
 
 public class DataStreamProducer {
     
@@ -31,11 +37,43 @@ public class DataStreamProducer {
     private static final String SYNTHETIC_DATA_PATH = "data/synthetic_observations_regression.json";
     
     private KafkaProducer<String, String> producer;
+    private ShardedSender sender;
     private Map<String, SpeciesPattern> speciesPatterns;
     private List<JsonNode> preGeneratedSyntheticData;
     
     public static void main(String[] args) {
         DataStreamProducer producer = new DataStreamProducer();
+        
+        // Class-loading workload for the AppCDS archive (see the fast-start Maven profile)
+        if (args.length > 0 && "--training-run".equals(args[0])) {
+            producer.runTrainingWorkload();
+            return;
+        }
+        
+        // Load Jackson classes now rather than on the first record
+        JsonCodec.warmUp(mapper);
+        
+        // Raw eBird Basic Dataset ingestion: --ingest-ebd <ebd.txt> [output.jsonl] [--store <dir>]
+        if (args.length >= 2 && "--ingest-ebd".equals(args[0])) {
+            Path outputPath = null;
+            Path storeDir = null;
+            for (int i = 2; i < args.length; i++) {
+                if ("--store".equals(args[i]) && i + 1 < args.length) {
+                    storeDir = Paths.get(args[++i]);
+                } else {
+                    outputPath = Paths.get(args[i]);
+                }
+            }
+            producer.ingestEbd(Paths.get(args[1]), outputPath, storeDir);
+            return;
+        }
+        
+        // Columnar store only, no Kafka: --build-store <ebd.txt> <dir>
+        if (args.length >= 3 && "--build-store".equals(args[0])) {
+            producer.buildObservationStore(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        
         producer.start();
     }
     
@@ -69,15 +107,122 @@ public class DataStreamProducer {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        
+        sender.close();
     }
     
-    private void initializeKafkaProducer() {
+    /**
+     * Streams a raw EBD TSV export as HISTORICAL observations, either into Kafka
+     * or, when outputPath is given, into a JSON-lines file. When storeDir is given
+     * the rows are also written to a columnar observation store.
+     */
+    public void ingestEbd(Path ebdPath, Path outputPath, Path storeDir) {
+        EbdIngestor ingestor = new EbdIngestor(ebdPath, Runtime.getRuntime().availableProcessors());
+        
+        try (ObservationStoreWriter store = storeDir != null ? new ObservationStoreWriter(storeDir) : null) {
+            if (outputPath == null) {
+                initializeKafkaProducer();
+                try {
+                    ingestor.ingest(obs -> {
+                        sendToKafka(obs, "HISTORICAL");
+                        appendToStore(store, obs);
+                    });
+                } finally {
+                    sender.close();
+                }
+                return;
+            }
+            
+            try (BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+                ingestor.ingest(obs -> {
+                    String line = JsonCodec.writeObservation(obs, "HISTORICAL", System.currentTimeMillis());
+                    synchronized (writer) {
+                        try {
+                            writer.write(line);
+                            writer.newLine();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    appendToStore(store, obs);
+                });
+            }
+            System.out.println("EBD observations written to " + outputPath);
+            
+        } catch (Exception e) {
+            System.err.println("Error ingesting EBD file: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Converts a raw EBD TSV export into a columnar observation store for
+     * fast local baseline recomputation (see ObservationStoreReader).
+     */
+    public void buildObservationStore(Path ebdPath, Path storeDir) {
+        EbdIngestor ingestor = new EbdIngestor(ebdPath, Runtime.getRuntime().availableProcessors());
+        
+        try (ObservationStoreWriter store = new ObservationStoreWriter(storeDir)) {
+            ingestor.ingest(obs -> appendToStore(store, obs));
+        } catch (Exception e) {
+            System.err.println("Error building observation store: " + e.getMessage());
+        }
+    }
+    
+    private void appendToStore(ObservationStoreWriter store, BirdObservation obs) {
+        if (store == null) return;
+        try {
+            store.append(obs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Loads the CSV and JSON inputs and sends a few observations through a
+     * ShardedSender backed by a MockProducer, without connecting to Kafka, so a
+     * run with -XX:ArchiveClassesAtExit captures the classes the first real
+     * record needs.
+     */
+    public void runTrainingWorkload() {
+        loadHistoricalPatterns();
+        loadPreGeneratedSyntheticData();
+        JsonCodec.warmUp(mapper);
+        
+        new ProducerConfig(producerProperties());
+        MockProducer<String, String> mockProducer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        try (ShardedSender trainingSender = new ShardedSender(mockProducer, KAFKA_TOPIC, 2, 64, 16)) {
+            for (JsonNode node : preGeneratedSyntheticData.subList(0, Math.min(20, preGeneratedSyntheticData.size()))) {
+                BirdObservation obs = jsonNodeToBirdObservation(node);
+                if (obs != null) {
+                    trainingSender.send(obs.getCommonName() + "_" + obs.getCounty(), obs, "SYNTHETIC");
+                }
+            }
+        }
+        
+        System.out.println("Training run completed");
+    }
+    
+    private Properties producerProperties() {
         Properties props = new Properties();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP_SERVERS);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
         
-        this.producer = new KafkaProducer<>(props);
+        // Idempotence keeps per-partition order through retries with several sender threads
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        return props;
+    }
+    
+    // Shard count, queue size and batch size: -Dbirdstream.producer.shards / .queueCapacity / .batchSize
+    private void initializeKafkaProducer() {
+        this.producer = new KafkaProducer<>(producerProperties());
+        this.sender = new ShardedSender(producer, KAFKA_TOPIC,
+            Integer.getInteger("birdstream.producer.shards", Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("birdstream.producer.queueCapacity", 8192),
+            Integer.getInteger("birdstream.producer.batchSize", 256));
         System.out.println("Kafka producer initialized");
     }
     
@@ -366,24 +511,9 @@ public class DataStreamProducer {
     
     private void sendToKafka(BirdObservation obs, String dataType) {
         try {
-            ObjectNode json = mapper.createObjectNode();
-            json.put("id", obs.getId());
-            json.put("commonName", obs.getCommonName());
-            json.put("count", obs.getCount());
-            json.put("observationDate", obs.getObservationDate().toString());
-            json.put("latitude", obs.getLatitude());
-            json.put("longitude", obs.getLongitude());
-            json.put("county", obs.getCounty());
-            json.put("observerId", obs.getObserverId());
-            json.put("dataType", dataType); // HISTORICAL or SYNTHETIC
-            json.put("timestamp", System.currentTimeMillis());
-            
+            // Serialized and sent by the key's shard worker, in per-key order
             String key = obs.getCommonName() + "_" + obs.getCounty();
-            ProducerRecord<String, String> record = new ProducerRecord<>(
-                KAFKA_TOPIC, key, json.toString()
-            );
-            
-            producer.send(record);
+            sender.send(key, obs, dataType);
             
             // Only log synthetic data to avoid spam
             if ("SYNTHETIC".equals(dataType)) {
@@ -0,0 +1,441 @@
+package com.yvonne.birdstream.producer;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import com.yvonne.birdstream.model.BirdObservation;
+
+/**
+ * Reads raw eBird Basic Dataset (EBD) TSV exports.
+ *
+ * The file is memory-mapped and split into chunks at line boundaries; each chunk
+ * is scanned byte-by-byte on a worker thread and only the columns we need are
+ * turned into objects. Rows go straight to the sink, so heap usage stays flat
+ * regardless of file size.
+ *
+ * The county field keeps the plain EBD county name, the same naming the synthetic
+ * and real-time sources use, so EBD baselines land on the processor's species_county
+ * keys. The EBD county code travels in its own countyCode field.
+ */
+public class EbdIngestor {
+
+    // Column names as they appear in the EBD header row
+    private static final String COL_ID = "GLOBAL UNIQUE IDENTIFIER";
+    private static final String COL_COMMON_NAME = "COMMON NAME";
+    private static final String COL_COUNT = "OBSERVATION COUNT";
+    private static final String COL_COUNTY = "COUNTY";
+    private static final String COL_COUNTY_CODE = "COUNTY CODE";   // e.g. US-CA-073
+    private static final String COL_STATE_CODE = "STATE CODE";     // e.g. US-CA
+    private static final String COL_LATITUDE = "LATITUDE";
+    private static final String COL_LONGITUDE = "LONGITUDE";
+    private static final String COL_DATE = "OBSERVATION DATE";
+    private static final String COL_TIME = "TIME OBSERVATIONS STARTED";
+    private static final String COL_OBSERVER = "OBSERVER ID";
+
+    private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024; // 64 MB per work unit
+    private static final byte TAB = '\t';
+    private static final byte NEWLINE = '\n';
+
+    private final Path path;
+    private final int threads;
+    private final long chunkSize;
+
+    // Column indexes resolved from the header
+    private int idCol, nameCol, countCol, countyCol, countyCodeCol, stateCodeCol;
+    private int latCol, lonCol, dateCol, timeCol, observerCol;
+    private int maxCol;
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsSkipped = new AtomicLong();
+    private final AtomicLong rowsPresenceOnly = new AtomicLong();
+    private final Set<String> stateCodes = ConcurrentHashMap.newKeySet();
+
+    // Set when ingestion fails or is interrupted; chunk tasks check it between rows
+    private volatile boolean stopped = false;
+
+    public EbdIngestor(Path path, int threads) {
+        this(path, threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    // Smaller chunks let tests exercise chunk boundaries with tiny files
+    EbdIngestor(Path path, int threads, long chunkSize) {
+        this.path = path;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Parses every row in the file and hands each one to the sink.
+     * The sink is called concurrently from several threads, and never after this
+     * method returns or throws. If the sink throws, ingestion stops and the
+     * exception is rethrown wrapped in an IOException.
+     *
+     * @return number of rows delivered to the sink
+     * @throws InterruptedIOException if the calling thread is interrupted; the
+     *         interrupt status is kept
+     */
+    public long ingest(Consumer<BirdObservation> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             Arena arena = Arena.ofShared()) {
+
+            long size = channel.size();
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            long dataStart = readHeader(file);
+            List<long[]> chunks = splitIntoChunks(file, dataStart);
+
+            System.out.println("Ingesting " + path + " (" + (size / (1024 * 1024)) + " MB) in " +
+                             chunks.size() + " chunks on " + threads + " threads");
+
+            long startTime = System.nanoTime();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (long[] chunk : chunks) {
+                    futures.add(pool.submit(() -> parseChunk(file, chunk[0], chunk[1], sink)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("EBD ingestion interrupted after " + rowsParsed.get() + " rows");
+            } catch (ExecutionException e) {
+                throw new IOException("EBD ingestion failed: " + e.getCause(), e.getCause());
+            } finally {
+                // Running chunks still read the mapping and call the sink, so wait for them
+                // before the arena (and the caller's sink resources) are closed
+                stopped = true;
+                pool.shutdownNow();
+                awaitTermination(pool);
+            }
+
+            if (stateCodes.size() > 1) {
+                System.out.println("Note: export spans " + stateCodes.size() + " states; same-named counties " +
+                                 "share species_county keys (their codes are kept in countyCode)");
+            }
+
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.println("EBD ingestion completed: " + rowsParsed.get() + " rows, " +
+                             rowsSkipped.get() + " skipped (" + rowsPresenceOnly.get() + " presence-only), " +
+                             String.format("%.1f MB/s", size / (1024.0 * 1024.0) / Math.max(seconds, 1e-9)));
+
+            return rowsParsed.get();
+        }
+    }
+
+    private long readHeader(MemorySegment file) throws IOException {
+        long end = indexOf(file, 0, file.byteSize(), NEWLINE);
+        if (end < 0) {
+            throw new IOException("EBD file has no header row: " + path);
+        }
+
+        byte[] headerBytes = file.asSlice(0, end).toArray(ValueLayout.JAVA_BYTE);
+        String[] columns = new String(headerBytes, StandardCharsets.UTF_8).trim().split("\t");
+
+        idCol = requireColumn(columns, COL_ID);
+        nameCol = requireColumn(columns, COL_COMMON_NAME);
+        countCol = requireColumn(columns, COL_COUNT);
+        countyCol = requireColumn(columns, COL_COUNTY);
+        countyCodeCol = requireColumn(columns, COL_COUNTY_CODE);
+        stateCodeCol = requireColumn(columns, COL_STATE_CODE);
+        latCol = requireColumn(columns, COL_LATITUDE);
+        lonCol = requireColumn(columns, COL_LONGITUDE);
+        dateCol = requireColumn(columns, COL_DATE);
+        timeCol = findColumn(columns, COL_TIME);
+        observerCol = requireColumn(columns, COL_OBSERVER);
+
+        int[] used = {idCol, nameCol, countCol, countyCol, countyCodeCol, stateCodeCol,
+                      latCol, lonCol, dateCol, timeCol, observerCol};
+        maxCol = 0;
+        for (int column : used) {
+            maxCol = Math.max(maxCol, column);
+        }
+
+        return end + 1;
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        boolean interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped.get();
+    }
+
+    public long getRowsPresenceOnly() {
+        return rowsPresenceOnly.get();
+    }
+
+    private int requireColumn(String[] columns, String name) throws IOException {
+        int index = findColumn(columns, name);
+        if (index < 0) {
+            throw new IOException("EBD header is missing column '" + name + "'");
+        }
+        return index;
+    }
+
+    private int findColumn(String[] columns, String name) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Cut the file into roughly chunkSize pieces, moving each cut forward to the next newline
+    private List<long[]> splitIntoChunks(MemorySegment file, long dataStart) {
+        List<long[]> chunks = new ArrayList<>();
+        long size = file.byteSize();
+        long start = dataStart;
+
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            if (end < size) {
+                long newline = indexOf(file, end, size, NEWLINE);
+                end = newline < 0 ? size : newline + 1;
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private void parseChunk(MemorySegment file, long start, long end, Consumer<BirdObservation> sink) {
+        // Field boundaries for the current row: fieldStart[i] inclusive, fieldEnd[i] exclusive
+        long[] fieldStart = new long[maxCol + 1];
+        long[] fieldEnd = new long[maxCol + 1];
+        byte[] scratch = new byte[256];
+
+        long lineStart = start;
+        while (lineStart < end && !stopped) {
+            long lineEnd = indexOf(file, lineStart, end, NEWLINE);
+            if (lineEnd < 0) {
+                lineEnd = end;
+            }
+
+            long contentEnd = lineEnd;
+            if (contentEnd > lineStart && file.get(ValueLayout.JAVA_BYTE, contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            if (contentEnd > lineStart) {
+                BirdObservation obs = parseRow(file, lineStart, contentEnd, fieldStart, fieldEnd, scratch);
+                if (obs != null) {
+                    sink.accept(obs);
+                    rowsParsed.incrementAndGet();
+                } else {
+                    rowsSkipped.incrementAndGet();
+                }
+            }
+
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private BirdObservation parseRow(MemorySegment file, long start, long end,
+                                     long[] fieldStart, long[] fieldEnd, byte[] scratch) {
+        // Locate only the fields up to the last column we care about
+        int column = 0;
+        long pos = start;
+        fieldStart[0] = start;
+        while (pos < end && column <= maxCol) {
+            if (file.get(ValueLayout.JAVA_BYTE, pos) == TAB) {
+                fieldEnd[column] = pos;
+                column++;
+                if (column <= maxCol) {
+                    fieldStart[column] = pos + 1;
+                }
+            }
+            pos++;
+        }
+        if (column < maxCol) {
+            return null; // Truncated row
+        }
+        if (column == maxCol) {
+            fieldEnd[maxCol] = end;
+        }
+
+        try {
+            String commonName = decode(file, fieldStart[nameCol], fieldEnd[nameCol], scratch);
+            if (commonName.isEmpty()) {
+                return null;
+            }
+
+            LocalDateTime observationDate = parseDateTime(file, fieldStart[dateCol], fieldEnd[dateCol],
+                                                          timeCol < 0 ? -1 : fieldStart[timeCol],
+                                                          timeCol < 0 ? -1 : fieldEnd[timeCol]);
+            if (observationDate == null) {
+                return null;
+            }
+
+            // Presence-only rows carry no count and would drag every baseline toward 1
+            int count = parseCount(file, fieldStart[countCol], fieldEnd[countCol]);
+            if (count <= 0) {
+                rowsPresenceOnly.incrementAndGet();
+                return null;
+            }
+
+            String county = decode(file, fieldStart[countyCol], fieldEnd[countyCol], scratch);
+
+            return new BirdObservation(
+                decode(file, fieldStart[idCol], fieldEnd[idCol], scratch),
+                commonName,
+                count,
+                observationDate,
+                parseDecimal(file, fieldStart[latCol], fieldEnd[latCol]),
+                parseDecimal(file, fieldStart[lonCol], fieldEnd[lonCol]),
+                county.isEmpty() ? "Unknown" : county,
+                decode(file, fieldStart[observerCol], fieldEnd[observerCol], scratch),
+                countyCode(file, fieldStart, fieldEnd, scratch)
+            );
+
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // County code (e.g. US-CA-073), or the state code when the county is blank; null when both are
+    private String countyCode(MemorySegment file, long[] fieldStart, long[] fieldEnd, byte[] scratch) {
+        String state = decode(file, fieldStart[stateCodeCol], fieldEnd[stateCodeCol], scratch);
+        if (!state.isEmpty()) {
+            stateCodes.add(state);
+        }
+        String code = decode(file, fieldStart[countyCodeCol], fieldEnd[countyCodeCol], scratch);
+        if (!code.isEmpty()) {
+            return code;
+        }
+        return state.isEmpty() ? null : state;
+    }
+
+    private static long indexOf(MemorySegment file, long from, long to, byte target) {
+        for (long i = from; i < to; i++) {
+            if (file.get(ValueLayout.JAVA_BYTE, i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(MemorySegment file, long start, long end, byte[] scratch) {
+        int length = (int) (end - start);
+        byte[] buffer = length <= scratch.length ? scratch : new byte[length];
+        MemorySegment.copy(file, ValueLayout.JAVA_BYTE, start, buffer, 0, length);
+        return new String(buffer, 0, length, StandardCharsets.UTF_8).trim();
+    }
+
+    // Returns -1 for "X" (species present but not counted) and anything else that is not a number
+    private static int parseCount(MemorySegment file, long start, long end) {
+        int value = 0;
+        boolean digits = false;
+        for (long i = start; i < end; i++) {
+            byte b = file.get(ValueLayout.JAVA_BYTE, i);
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                digits = true;
+            } else {
+                return -1;
+            }
+        }
+        return digits ? value : -1;
+    }
+
+    private static double parseDecimal(MemorySegment file, long start, long end) {
+        long mantissa = 0;
+        long scale = 1;
+        boolean negative = false;
+        boolean fraction = false;
+
+        for (long i = start; i < end; i++) {
+            byte b = file.get(ValueLayout.JAVA_BYTE, i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                if (fraction) {
+                    scale *= 10;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b == '-' && i == start) {
+                negative = true;
+            } else {
+                // Unusual formatting (exponents, whitespace) - let the JDK handle it
+                byte[] raw = file.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE);
+                return Double.parseDouble(new String(raw, StandardCharsets.US_ASCII).trim());
+            }
+        }
+
+        double value = (double) mantissa / scale;
+        return negative ? -value : value;
+    }
+
+    // Dates are yyyy-MM-dd; times are HH:mm:ss and often blank
+    private static LocalDateTime parseDateTime(MemorySegment file, long dateStart, long dateEnd,
+                                               long timeStart, long timeEnd) {
+        if (dateEnd - dateStart < 10) {
+            return null;
+        }
+
+        int year = digits(file, dateStart, 4);
+        int month = digits(file, dateStart + 5, 2);
+        int day = digits(file, dateStart + 8, 2);
+        if (year < 0 || month < 1 || day < 1) {
+            return null;
+        }
+
+        int hour = 8; // Same default time of day as the synthetic data
+        int minute = 0;
+        if (timeStart >= 0 && timeEnd - timeStart >= 5) {
+            int parsedHour = digits(file, timeStart, 2);
+            int parsedMinute = digits(file, timeStart + 3, 2);
+            if (parsedHour >= 0 && parsedMinute >= 0) {
+                hour = parsedHour;
+                minute = parsedMinute;
+            }
+        }
+
+        return LocalDateTime.of(year, month, day, hour, minute);
+    }
+
+    private static int digits(MemorySegment file, long start, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            byte b = file.get(ValueLayout.JAVA_BYTE, start + i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+}
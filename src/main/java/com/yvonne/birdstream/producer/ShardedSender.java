@@ -0,0 +1,301 @@
+package com.yvonne.birdstream.producer;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.ObjectName;
+import com.yvonne.birdstream.model.BirdObservation;
+import com.yvonne.birdstream.model.JsonCodec;
+
+/**
+ * Parallel send pipeline in front of a Kafka producer.
+ *
+ * Records are hashed by their species_county key onto one of N bounded queues, and
+ * each queue is drained by its own virtual thread that serializes a batch and hands
+ * it to the producer. One key always lands on the same queue and the same worker,
+ * so per-key order is kept; with idempotence enabled the producer keeps that order
+ * through retries. When a queue is full the calling thread waits, which throttles
+ * replay to what Kafka can absorb. An idle worker parks until send() wakes it.
+ */
+public class ShardedSender implements ShardedSenderMXBean, AutoCloseable {
+
+    private static final String MBEAN_NAME = "com.yvonne.birdstream:type=ShardedSender";
+    private static final long BACKPRESSURE_PARK_NANOS = 50_000; // Caller sleep when a queue is full
+
+    private final Producer<String, String> producer;
+    private final String topic;
+    private final int batchSize;
+    private final List<Shard> shards = new ArrayList<>();
+
+    // Shutdown: close() clears running, waits until no send() is in progress, then sets
+    // stopping so workers exit once their queue is empty
+    private volatile boolean running = true;
+    private volatile boolean stopping = false;
+    private final AtomicInteger activeSends = new AtomicInteger();
+
+    // Metrics
+    private final LongAdder recordsSent = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final LongAdder latencyNanosTotal = new LongAdder();
+    private final LongAdder latencySamples = new LongAdder();
+    private final AtomicLong latencyNanosMax = new AtomicLong();
+    private final AtomicBoolean firstRecordAcked = new AtomicBoolean(false);
+
+    private static final class PendingRecord {
+        final String key;
+        final BirdObservation observation;
+        final String dataType;
+
+        PendingRecord(String key, BirdObservation observation, String dataType) {
+            this.key = key;
+            this.observation = observation;
+            this.dataType = dataType;
+        }
+    }
+
+    private static final class Shard {
+        final BoundedMpscQueue<PendingRecord> queue;
+        Thread worker;
+        volatile boolean sleeping = false; // Worker is parked (or about to park) on an empty queue
+
+        Shard(int queueCapacity) {
+            this.queue = new BoundedMpscQueue<>(queueCapacity);
+        }
+    }
+
+    public ShardedSender(Producer<String, String> producer, String topic,
+                         int shardCount, int queueCapacity, int batchSize) {
+        this.producer = producer;
+        this.topic = topic;
+        this.batchSize = Math.max(1, batchSize);
+
+        for (int i = 0; i < Math.max(1, shardCount); i++) {
+            Shard shard = new Shard(queueCapacity);
+            shards.add(shard);
+            shard.worker = Thread.ofVirtual().name("sender-shard-" + i).unstarted(() -> drain(shard));
+        }
+        for (Shard shard : shards) {
+            shard.worker.start();
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(MBEAN_NAME));
+        } catch (Exception e) {
+            System.err.println("Could not register producer metrics MBean: " + e.getMessage());
+        }
+
+        System.out.println("Sharded sender started: " + shards.size() + " shards, " +
+                         shards.get(0).queue.capacity() + " records per queue, batches of " + this.batchSize);
+    }
+
+    /** Queues a record for sending, waiting while its shard's queue is full. */
+    public void send(String key, BirdObservation obs, String dataType) {
+        activeSends.incrementAndGet();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Sharded sender is closed");
+            }
+
+            Shard shard = shards.get(Math.floorMod(key.hashCode(), shards.size()));
+            PendingRecord record = new PendingRecord(key, obs, dataType);
+            while (!shard.queue.offer(record)) {
+                backpressureWaits.increment();
+                LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+            }
+            if (shard.sleeping) {
+                LockSupport.unpark(shard.worker);
+            }
+        } finally {
+            activeSends.decrementAndGet();
+        }
+    }
+
+    private void drain(Shard shard) {
+        BoundedMpscQueue<PendingRecord> queue = shard.queue;
+        List<PendingRecord> batch = new ArrayList<>(batchSize);
+        List<String> payloads = new ArrayList<>(batchSize);
+
+        while (true) {
+            PendingRecord next;
+            while (batch.size() < batchSize && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+
+            if (batch.isEmpty()) {
+                if (stopping) {
+                    // No send() can still be adding records, so one more empty check is final
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+
+                // Announce the park, then re-check: send() offers before reading sleeping,
+                // so either we see its record here or it sees sleeping and unparks us
+                shard.sleeping = true;
+                if (queue.isEmpty() && !stopping) {
+                    LockSupport.park(this);
+                }
+                shard.sleeping = false;
+                continue;
+            }
+
+            // Serialize the whole batch, then send it in queue order. A record that
+            // fails to serialize is counted and skipped; the worker keeps going.
+            for (PendingRecord record : batch) {
+                try {
+                    payloads.add(JsonCodec.writeObservation(record.observation, record.dataType, System.currentTimeMillis()));
+                } catch (RuntimeException e) {
+                    payloads.add(null);
+                    sendErrors.increment();
+                    System.err.println("Failed to serialize " + record.key + ": " + e);
+                }
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (payloads.get(i) != null) {
+                    sendOne(batch.get(i).key, payloads.get(i));
+                }
+            }
+
+            batch.clear();
+            payloads.clear();
+        }
+    }
+
+    private void sendOne(String key, String payload) {
+        long start = System.nanoTime();
+        try {
+            producer.send(new ProducerRecord<>(topic, key, payload), (metadata, exception) -> {
+                if (exception != null) {
+                    sendErrors.increment();
+                    System.err.println("Failed to send " + key + ": " + exception.getMessage());
+                    return;
+                }
+                long latency = System.nanoTime() - start;
+                recordsSent.increment();
+                latencyNanosTotal.add(latency);
+                latencySamples.increment();
+                latencyNanosMax.accumulateAndGet(latency, Math::max);
+
+                if (firstRecordAcked.compareAndSet(false, true)) {
+                    long sinceStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                    System.out.println("First record sent " + sinceStart + " ms after JVM start");
+                }
+            });
+        } catch (Exception e) {
+            sendErrors.increment();
+            System.err.println("Failed to send " + key + ": " + e.getMessage());
+        }
+    }
+
+    /** Stops accepting records, drains every queue, then flushes and closes the producer. */
+    @Override
+    public void close() {
+        running = false;
+        while (activeSends.get() > 0) {
+            LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS); // A send() that passed the running check is still offering
+        }
+
+        stopping = true;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.worker);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Workers only exit on an empty queue; anything left means one died, so send it from here
+        for (Shard shard : shards) {
+            if (!shard.worker.isAlive()) {
+                PendingRecord record;
+                int leftover = 0;
+                while ((record = shard.queue.poll()) != null) {
+                    leftover++;
+                    try {
+                        sendOne(record.key, JsonCodec.writeObservation(record.observation, record.dataType, System.currentTimeMillis()));
+                    } catch (RuntimeException e) {
+                        sendErrors.increment();
+                    }
+                }
+                if (leftover > 0) {
+                    System.err.println("Sent " + leftover + " records left in " + shard.worker.getName() + " after it stopped");
+                }
+            }
+        }
+
+        producer.flush();
+        producer.close();
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(MBEAN_NAME));
+        } catch (Exception e) {
+            // Not registered
+        }
+
+        System.out.println("Sharded sender closed: " + getRecordsSent() + " records sent, " +
+                         getSendErrors() + " errors, " + getBackpressureWaits() + " backpressure waits, " +
+                         String.format("avg latency %.1f ms, max %.1f ms", getAverageSendLatencyMs(), getMaxSendLatencyMs()));
+    }
+
+    @Override
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Shard shard : shards) {
+            depth += shard.queue.size();
+        }
+        return depth;
+    }
+
+    @Override
+    public int getMaxShardQueueDepth() {
+        int max = 0;
+        for (Shard shard : shards) {
+            max = Math.max(max, shard.queue.size());
+        }
+        return max;
+    }
+
+    @Override
+    public long getRecordsSent() {
+        return recordsSent.sum();
+    }
+
+    @Override
+    public long getSendErrors() {
+        return sendErrors.sum();
+    }
+
+    @Override
+    public long getBackpressureWaits() {
+        return backpressureWaits.sum();
+    }
+
+    @Override
+    public double getAverageSendLatencyMs() {
+        long samples = latencySamples.sum();
+        return samples == 0 ? 0.0 : latencyNanosTotal.sum() / 1e6 / samples;
+    }
+
+    @Override
+    public double getMaxSendLatencyMs() {
+        return latencyNanosMax.get() / 1e6;
+    }
+}
@@ -0,0 +1,13 @@
+package com.yvonne.birdstream.producer;
+
+/** JMX view of ShardedSender, registered as com.yvonne.birdstream:type=ShardedSender. */
+public interface ShardedSenderMXBean {
+    int getShardCount();
+    int getQueueDepth();
+    int getMaxShardQueueDepth();
+    long getRecordsSent();
+    long getSendErrors();
+    long getBackpressureWaits();
+    double getAverageSendLatencyMs();
+    double getMaxSendLatencyMs();
+}
@@ -0,0 +1,34 @@
+package com.yvonne.birdstream.store;
+
+/**
+ * Predicates pushed down into an ObservationStoreReader scan.
+ * A null species or season matches everything.
+ */
+public class BaselineQuery {
+    private final String species;
+    private final int fromYear;
+    private final int toYear;
+    private final Season season;
+
+    public BaselineQuery(String species, int fromYear, int toYear, Season season) {
+        this.species = species;
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        this.season = season;
+    }
+
+    public static BaselineQuery forPeriod(int fromYear, int toYear) {
+        return new BaselineQuery(null, fromYear, toYear, null);
+    }
+
+    public String getSpecies() { return species; }
+    public int getFromYear() { return fromYear; }
+    public int getToYear() { return toYear; }
+    public Season getSeason() { return season; }
+
+    @Override
+    public String toString() {
+        return (species == null ? "all species" : species) + ", " + fromYear + "-" + toYear +
+               (season == null ? "" : ", " + season.getDisplayName());
+    }
+}
@@ -0,0 +1,47 @@
+package com.yvonne.birdstream.store;
+
+/**
+ * Running count/mean/variance for one species_county key.
+ * Uses Welford updates so partial results from parallel block scans can be merged.
+ */
+public class BaselineSummary {
+    private long observationCount = 0;
+    private double mean = 0.0;
+    private double m2 = 0.0;
+
+    public void add(int count) {
+        observationCount++;
+        double delta = count - mean;
+        mean += delta / observationCount;
+        m2 += delta * (count - mean);
+    }
+
+    public void merge(BaselineSummary other) {
+        if (other.observationCount == 0) return;
+        if (observationCount == 0) {
+            observationCount = other.observationCount;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+
+        long total = observationCount + other.observationCount;
+        double delta = other.mean - mean;
+        mean += delta * other.observationCount / total;
+        m2 += other.m2 + delta * delta * observationCount * other.observationCount / total;
+        observationCount = total;
+    }
+
+    public long getObservationCount() {
+        return observationCount;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getStdDev() {
+        if (observationCount == 0) return 0.0;
+        return Math.sqrt(m2 / observationCount);
+    }
+}
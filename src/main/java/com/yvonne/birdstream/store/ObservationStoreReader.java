@@ -0,0 +1,217 @@
+package com.yvonne.birdstream.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Scans a columnar observation store to rebuild per species_county baselines.
+ *
+ * Blocks whose min/max stats cannot match the query are skipped without touching
+ * their column data, and the remaining blocks are scanned in parallel.
+ */
+public class ObservationStoreReader implements Closeable {
+
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment data;
+    private final List<String> speciesNames;
+    private final List<String> countyNames;
+    private final List<Long> blockOffsets = new ArrayList<>();
+
+    public ObservationStoreReader(Path directory) throws IOException {
+        this.speciesNames = Files.readAllLines(directory.resolve(StoreFormat.SPECIES_DICT), StandardCharsets.UTF_8);
+        this.countyNames = Files.readAllLines(directory.resolve(StoreFormat.COUNTY_DICT), StandardCharsets.UTF_8);
+
+        this.arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(directory.resolve(StoreFormat.DATA_FILE), StandardOpenOption.READ)) {
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        } catch (IOException e) {
+            arena.close();
+            throw e;
+        }
+
+        if (data.byteSize() < StoreFormat.FILE_HEADER_SIZE ||
+            data.get(INT, 0) != StoreFormat.MAGIC ||
+            data.get(INT, 4) != StoreFormat.VERSION) {
+            close();
+            throw new IOException("Not an observation store: " + directory);
+        }
+
+        // Walk the block headers once to build the block index. A store left behind by a
+        // crashed ingest can end in a partial block (or a hole from an unfinished write),
+        // so stop at the first header that does not describe a whole block.
+        long offset = StoreFormat.FILE_HEADER_SIZE;
+        while (offset < data.byteSize()) {
+            if (data.byteSize() - offset < StoreFormat.BLOCK_HEADER_SIZE) {
+                warnTruncated(directory, offset);
+                break;
+            }
+            int rows = data.get(INT, offset + StoreFormat.ROW_COUNT);
+            if (rows <= 0 || rows > StoreFormat.BLOCK_CAPACITY ||
+                offset + StoreFormat.blockSize(rows) > data.byteSize()) {
+                warnTruncated(directory, offset);
+                break;
+            }
+            blockOffsets.add(offset);
+            offset += StoreFormat.blockSize(rows);
+        }
+    }
+
+    private void warnTruncated(Path directory, long offset) {
+        System.err.println("Observation store " + directory + " is incomplete after " + blockOffsets.size() +
+                         " blocks (offset " + offset + " of " + data.byteSize() + "); ignoring the rest");
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.size();
+    }
+
+    /** Number of blocks a query would scan after block-level pruning. */
+    public int countCandidateBlocks(BaselineQuery query) {
+        int speciesId = query.getSpecies() == null ? -1 : speciesNames.indexOf(query.getSpecies());
+        if (query.getSpecies() != null && speciesId < 0) {
+            return 0;
+        }
+        int seasonBit = query.getSeason() == null ? -1 : 1 << query.getSeason().ordinal();
+
+        int candidates = 0;
+        for (long offset : blockOffsets) {
+            if (blockMayMatch(offset, query, speciesId, seasonBit)) {
+                candidates++;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Computes baselines keyed by species_county (the same key the processor uses)
+     * for every observation matching the query.
+     */
+    public Map<String, BaselineSummary> computeBaselines(BaselineQuery query) {
+        int speciesId = -1;
+        if (query.getSpecies() != null) {
+            speciesId = speciesNames.indexOf(query.getSpecies());
+            if (speciesId < 0) {
+                return new TreeMap<>(); // Species never seen, nothing to scan
+            }
+        }
+        int seasonBit = query.getSeason() == null ? -1 : 1 << query.getSeason().ordinal();
+        final int wantedSpecies = speciesId;
+
+        HashMap<Long, BaselineSummary> merged = blockOffsets.parallelStream()
+            .filter(offset -> blockMayMatch(offset, query, wantedSpecies, seasonBit))
+            .map(offset -> scanBlock(offset, query, wantedSpecies))
+            .collect(HashMap::new, ObservationStoreReader::mergeInto, ObservationStoreReader::mergeInto);
+
+        Map<String, BaselineSummary> baselines = new TreeMap<>();
+        for (Map.Entry<Long, BaselineSummary> entry : merged.entrySet()) {
+            int species = (int) (entry.getKey() >>> 32);
+            int county = (int) (long) entry.getKey();
+            if (species >= speciesNames.size() || county >= countyNames.size()) {
+                continue; // Names lost with an interrupted ingest
+            }
+            baselines.put(speciesNames.get(species) + "_" + countyNames.get(county), entry.getValue());
+        }
+        return baselines;
+    }
+
+    private boolean blockMayMatch(long block, BaselineQuery query, int speciesId, int seasonBit) {
+        short minYear = data.get(SHORT, block + StoreFormat.MIN_YEAR);
+        short maxYear = data.get(SHORT, block + StoreFormat.MAX_YEAR);
+        if (maxYear < query.getFromYear() || minYear > query.getToYear()) {
+            return false;
+        }
+        if (seasonBit >= 0 && (data.get(INT, block + StoreFormat.SEASON_MASK) & seasonBit) == 0) {
+            return false;
+        }
+        if (speciesId >= 0 && (speciesId < data.get(INT, block + StoreFormat.MIN_SPECIES) ||
+                               speciesId > data.get(INT, block + StoreFormat.MAX_SPECIES))) {
+            return false;
+        }
+        return true;
+    }
+
+    private Map<Long, BaselineSummary> scanBlock(long block, BaselineQuery query, int speciesId) {
+        int rows = data.get(INT, block + StoreFormat.ROW_COUNT);
+        long years = block + StoreFormat.yearOffset(rows);
+        long seasons = block + StoreFormat.seasonOffset(rows);
+        long species = block + StoreFormat.speciesOffset(rows);
+        long counties = block + StoreFormat.countyOffset(rows);
+        long counts = block + StoreFormat.countOffset(rows);
+
+        int fromYear = query.getFromYear();
+        int toYear = query.getToYear();
+        int season = query.getSeason() == null ? -1 : query.getSeason().ordinal();
+
+        Map<Long, BaselineSummary> partial = new HashMap<>();
+        for (int i = 0; i < rows; i++) {
+            short year = data.get(SHORT, years + 2L * i);
+            if (year < fromYear || year > toYear) continue;
+            if (season >= 0 && data.get(ValueLayout.JAVA_BYTE, seasons + i) != season) continue;
+
+            int rowSpecies = data.get(INT, species + 4L * i);
+            if (speciesId >= 0 && rowSpecies != speciesId) continue;
+
+            long key = ((long) rowSpecies << 32) | (data.get(INT, counties + 4L * i) & 0xFFFFFFFFL);
+            partial.computeIfAbsent(key, _ -> new BaselineSummary())
+                   .add(data.get(INT, counts + 4L * i));
+        }
+        return partial;
+    }
+
+    // Partial maps are owned by the scan, so their summaries can be merged in place
+    private static void mergeInto(Map<Long, BaselineSummary> target, Map<Long, BaselineSummary> source) {
+        source.forEach((key, summary) -> target.merge(key, summary, (a, b) -> {
+            a.merge(b);
+            return a;
+        }));
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    // Usage: ObservationStoreReader <storeDir> <fromYear> <toYear> [season] [species]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: ObservationStoreReader <storeDir> <fromYear> <toYear> [season] [species]");
+            System.exit(1);
+        }
+
+        Season season = args.length >= 4 && !"all".equalsIgnoreCase(args[3]) ? Season.parse(args[3]) : null;
+        String species = args.length >= 5 ? args[4] : null;
+        BaselineQuery query = new BaselineQuery(species, Integer.parseInt(args[1]), Integer.parseInt(args[2]), season);
+
+        try (ObservationStoreReader reader = new ObservationStoreReader(Paths.get(args[0]))) {
+            long startTime = System.nanoTime();
+            Map<String, BaselineSummary> baselines = reader.computeBaselines(query);
+            double millis = (System.nanoTime() - startTime) / 1e6;
+
+            System.out.println("Baselines for " + query + " (" + baselines.size() + " keys, scanned " +
+                             reader.countCandidateBlocks(query) + " of " + reader.getBlockCount() + " blocks, " +
+                             String.format("%.0f ms", millis) + ")");
+            baselines.forEach((key, baseline) ->
+                System.out.println(key + ": mean=" + String.format("%.2f", baseline.getMean()) +
+                                 ", stddev=" + String.format("%.2f", baseline.getStdDev()) +
+                                 ", observations=" + baseline.getObservationCount()));
+        }
+    }
+}
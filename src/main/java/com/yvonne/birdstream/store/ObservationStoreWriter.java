@@ -0,0 +1,287 @@
+package com.yvonne.birdstream.store;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import com.yvonne.birdstream.model.BirdObservation;
+
+/**
+ * Appends observations to a columnar store directory (see StoreFormat).
+ *
+ * Rows are partitioned by year. Each year buffers a run of up to RUN_BLOCKS blocks;
+ * a full run is sorted by species and season and written as blocks, so every block
+ * covers one year and a narrow species range. Appends only lock their year's
+ * partition for the few stores into the column arrays; sorting, encoding and the
+ * file write happen outside any lock, with each block written at an offset reserved
+ * up front. Safe to call from many threads.
+ */
+public class ObservationStoreWriter implements Closeable {
+
+    private static final int MAX_YEAR = 4095;
+    private static final int INITIAL_RUN_CAPACITY = 1024; // Rare years stay small
+    private static final int RUN_CAPACITY = StoreFormat.BLOCK_CAPACITY * StoreFormat.RUN_BLOCKS;
+
+    private final Path directory;
+    private final FileChannel channel;
+    private final AtomicLong nextOffset = new AtomicLong(StoreFormat.FILE_HEADER_SIZE);
+
+    private final Dictionary species;
+    private final Dictionary counties;
+    private final AtomicReferenceArray<Partition> partitions = new AtomicReferenceArray<>(MAX_YEAR + 1);
+
+    private final ThreadLocal<ByteBuffer> blockBuffers = ThreadLocal.withInitial(() ->
+        ByteBuffer.allocate((int) StoreFormat.blockSize(StoreFormat.BLOCK_CAPACITY)).order(ByteOrder.LITTLE_ENDIAN));
+
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicLong totalBlocks = new AtomicLong();
+
+    public ObservationStoreWriter(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        this.species = new Dictionary(directory.resolve(StoreFormat.SPECIES_DICT));
+        this.counties = new Dictionary(directory.resolve(StoreFormat.COUNTY_DICT));
+        this.channel = FileChannel.open(directory.resolve(StoreFormat.DATA_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(StoreFormat.FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(StoreFormat.MAGIC).putInt(StoreFormat.VERSION).flip();
+        writeFully(header, 0);
+    }
+
+    public void append(BirdObservation obs) throws IOException {
+        int year = obs.getObservationDate().getYear();
+        if (year < 0 || year > MAX_YEAR) {
+            return; // Not a real observation date
+        }
+
+        int speciesId = species.idFor(obs.getCommonName());
+        int countyId = counties.idFor(obs.getCounty());
+        byte season = (byte) Season.ofMonth(obs.getObservationDate().getMonthValue()).ordinal();
+
+        Partition partition = partitions.get(year);
+        if (partition == null) {
+            partitions.compareAndSet(year, null, new Partition((short) year));
+            partition = partitions.get(year);
+        }
+
+        Run full = null;
+        synchronized (partition) {
+            Run run = partition.run;
+            run.add(season, speciesId, countyId, obs.getCount(), (float) obs.getLatitude(), (float) obs.getLongitude());
+            if (run.rows == RUN_CAPACITY) {
+                full = run;
+                partition.run = new Run(partition.year, INITIAL_RUN_CAPACITY);
+            }
+        }
+
+        if (full != null) {
+            writeRun(full);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int year = 0; year <= MAX_YEAR; year++) {
+                Partition partition = partitions.get(year);
+                if (partition == null) continue;
+
+                Run run;
+                synchronized (partition) {
+                    run = partition.run;
+                    partition.run = new Run(partition.year, INITIAL_RUN_CAPACITY);
+                }
+                if (run.rows > 0) {
+                    writeRun(run);
+                }
+            }
+            channel.force(true);
+        } finally {
+            channel.close();
+            species.close();
+            counties.close();
+        }
+
+        System.out.println("Observation store written to " + directory + ": " + totalRows.get() +
+                         " rows in " + totalBlocks.get() + " blocks, " + species.size() +
+                         " species, " + counties.size() + " counties");
+    }
+
+    // Sort the run by (species, season) and cut it into blocks
+    private void writeRun(Run run) throws IOException {
+        int n = run.rows;
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = ((long) run.species[i] << 34) | ((long) run.seasons[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        for (int start = 0; start < n; start += StoreFormat.BLOCK_CAPACITY) {
+            writeBlock(run, order, start, Math.min(start + StoreFormat.BLOCK_CAPACITY, n));
+        }
+    }
+
+    private void writeBlock(Run run, long[] order, int from, int to) throws IOException {
+        int n = to - from;
+        ByteBuffer buffer = blockBuffers.get();
+        buffer.clear();
+
+        // Block statistics used for predicate pushdown
+        int seasonMask = 0;
+        int minSpecies = Integer.MAX_VALUE, maxSpecies = Integer.MIN_VALUE;
+        int minCounty = Integer.MAX_VALUE, maxCounty = Integer.MIN_VALUE;
+        int minCount = Integer.MAX_VALUE, maxCount = Integer.MIN_VALUE;
+        float minLat = Float.MAX_VALUE, maxLat = -Float.MAX_VALUE;
+        float minLon = Float.MAX_VALUE, maxLon = -Float.MAX_VALUE;
+
+        for (int k = from; k < to; k++) {
+            int i = (int) order[k];
+            seasonMask |= 1 << run.seasons[i];
+            minSpecies = Math.min(minSpecies, run.species[i]);
+            maxSpecies = Math.max(maxSpecies, run.species[i]);
+            minCounty = Math.min(minCounty, run.counties[i]);
+            maxCounty = Math.max(maxCounty, run.counties[i]);
+            minCount = Math.min(minCount, run.counts[i]);
+            maxCount = Math.max(maxCount, run.counts[i]);
+            minLat = Math.min(minLat, run.latitudes[i]);
+            maxLat = Math.max(maxLat, run.latitudes[i]);
+            minLon = Math.min(minLon, run.longitudes[i]);
+            maxLon = Math.max(maxLon, run.longitudes[i]);
+        }
+
+        buffer.putInt(n)
+              .putShort(run.year).putShort(run.year)
+              .putInt(seasonMask)
+              .putInt(minSpecies).putInt(maxSpecies)
+              .putInt(minCounty).putInt(maxCounty)
+              .putInt(minCount).putInt(maxCount)
+              .putFloat(minLat).putFloat(maxLat)
+              .putFloat(minLon).putFloat(maxLon);
+
+        for (int k = from; k < to; k++) buffer.putShort(run.year);
+        for (int k = from; k < to; k++) buffer.put(run.seasons[(int) order[k]]);
+        for (int k = from; k < to; k++) buffer.putInt(run.species[(int) order[k]]);
+        for (int k = from; k < to; k++) buffer.putInt(run.counties[(int) order[k]]);
+        for (int k = from; k < to; k++) buffer.putInt(run.counts[(int) order[k]]);
+        for (int k = from; k < to; k++) buffer.putFloat(run.latitudes[(int) order[k]]);
+        for (int k = from; k < to; k++) buffer.putFloat(run.longitudes[(int) order[k]]);
+
+        buffer.flip();
+        writeFully(buffer, nextOffset.getAndAdd(buffer.remaining()));
+
+        totalRows.addAndGet(n);
+        totalBlocks.incrementAndGet();
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static final class Partition {
+        final short year;
+        Run run;
+
+        Partition(short year) {
+            this.year = year;
+            this.run = new Run(year, INITIAL_RUN_CAPACITY);
+        }
+    }
+
+    // Column buffers for one year, grown on demand up to RUN_CAPACITY rows
+    private static final class Run {
+        final short year;
+        byte[] seasons;
+        int[] species;
+        int[] counties;
+        int[] counts;
+        float[] latitudes;
+        float[] longitudes;
+        int rows = 0;
+
+        Run(short year, int capacity) {
+            this.year = year;
+            this.seasons = new byte[capacity];
+            this.species = new int[capacity];
+            this.counties = new int[capacity];
+            this.counts = new int[capacity];
+            this.latitudes = new float[capacity];
+            this.longitudes = new float[capacity];
+        }
+
+        void add(byte season, int speciesId, int countyId, int count, float latitude, float longitude) {
+            if (rows == seasons.length) {
+                int capacity = Math.min(seasons.length * 2, RUN_CAPACITY);
+                seasons = Arrays.copyOf(seasons, capacity);
+                species = Arrays.copyOf(species, capacity);
+                counties = Arrays.copyOf(counties, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+            }
+            seasons[rows] = season;
+            species[rows] = speciesId;
+            counties[rows] = countyId;
+            counts[rows] = count;
+            latitudes[rows] = latitude;
+            longitudes[rows] = longitude;
+            rows++;
+        }
+    }
+
+    /**
+     * Name-to-ID dictionary whose file is appended (and flushed) as soon as a new
+     * name gets an ID, before any block can reference it. Line number = ID.
+     */
+    private static final class Dictionary implements Closeable {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final BufferedWriter writer;
+        private int next = 0;
+
+        Dictionary(Path file) throws IOException {
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+
+        int idFor(String name) throws IOException {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+
+            synchronized (this) {
+                id = ids.get(name);
+                if (id == null) {
+                    writer.write(name.replace('\n', ' ').replace('\r', ' '));
+                    writer.newLine();
+                    writer.flush();
+                    id = next++;
+                    ids.put(name, id);
+                }
+                return id;
+            }
+        }
+
+        synchronized int size() {
+            return next;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+}
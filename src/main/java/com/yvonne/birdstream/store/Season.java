@@ -0,0 +1,35 @@
+package com.yvonne.birdstream.store;
+
+public enum Season {
+    SPRING("Spring"),
+    SUMMER("Summer"),
+    FALL("Fall"),
+    WINTER("Winter");
+
+    private final String displayName;
+
+    Season(String displayName) {
+        this.displayName = displayName;
+    }
+
+    // Same month ranges as SpeciesPattern and the BigQuery baseline queries
+    public static Season ofMonth(int month) {
+        if (month >= 3 && month <= 5) return SPRING;
+        if (month >= 6 && month <= 8) return SUMMER;
+        if (month >= 9 && month <= 11) return FALL;
+        return WINTER;
+    }
+
+    public static Season parse(String name) {
+        for (Season season : values()) {
+            if (season.displayName.equalsIgnoreCase(name.trim())) {
+                return season;
+            }
+        }
+        throw new IllegalArgumentException("Unknown season: " + name);
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
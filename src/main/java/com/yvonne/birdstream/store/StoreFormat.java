@@ -0,0 +1,65 @@
+package com.yvonne.birdstream.store;
+
+/**
+ * On-disk layout of the columnar observation store.
+ *
+ * A store is a directory holding observations.col plus two dictionaries
+ * (species.dict, counties.dict) that map line number to name. observations.col
+ * is a file header followed by blocks; each block has a stats header and then
+ * one primitive array per column, all little-endian:
+ *
+ *   year short[n] | season byte[n] | species int[n] | county int[n] |
+ *   count int[n] | latitude float[n] | longitude float[n]
+ *
+ * Rows are clustered before they are written: every block holds a single year,
+ * and blocks are cut from runs of up to RUN_BLOCKS blocks sorted by species and
+ * season, so the min/max stats stay narrow enough to skip blocks. Blocks appear in
+ * the file in no particular order, and the dictionaries are appended as new names
+ * arrive, so a store cut short by a crash is still readable up to its last whole block.
+ */
+final class StoreFormat {
+    static final String DATA_FILE = "observations.col";
+    static final String SPECIES_DICT = "species.dict";
+    static final String COUNTY_DICT = "counties.dict";
+
+    static final int MAGIC = 0x42534331; // "BSC1"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+
+    static final int BLOCK_CAPACITY = 16384;
+    static final int RUN_BLOCKS = 4;
+
+    // Block header fields
+    static final int ROW_COUNT = 0;
+    static final int MIN_YEAR = 4;      // short
+    static final int MAX_YEAR = 6;      // short
+    static final int SEASON_MASK = 8;   // one bit per Season ordinal
+    static final int MIN_SPECIES = 12;
+    static final int MAX_SPECIES = 16;
+    static final int MIN_COUNTY = 20;
+    static final int MAX_COUNTY = 24;
+    static final int MIN_COUNT = 28;
+    static final int MAX_COUNT = 32;
+    static final int MIN_LAT = 36;      // float
+    static final int MAX_LAT = 40;
+    static final int MIN_LON = 44;
+    static final int MAX_LON = 48;
+    static final int BLOCK_HEADER_SIZE = 52;
+
+    static final int BYTES_PER_ROW = 2 + 1 + 4 + 4 + 4 + 4 + 4;
+
+    private StoreFormat() {}
+
+    static long blockSize(int rows) {
+        return BLOCK_HEADER_SIZE + (long) rows * BYTES_PER_ROW;
+    }
+
+    // Column offsets relative to the start of a block
+    static long yearOffset(int rows)      { return BLOCK_HEADER_SIZE; }
+    static long seasonOffset(int rows)    { return yearOffset(rows) + 2L * rows; }
+    static long speciesOffset(int rows)   { return seasonOffset(rows) + rows; }
+    static long countyOffset(int rows)    { return speciesOffset(rows) + 4L * rows; }
+    static long countOffset(int rows)     { return countyOffset(rows) + 4L * rows; }
+    static long latitudeOffset(int rows)  { return countOffset(rows) + 4L * rows; }
+    static long longitudeOffset(int rows) { return latitudeOffset(rows) + 4L * rows; }
+}
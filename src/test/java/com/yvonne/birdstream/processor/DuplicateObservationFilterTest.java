@@ -0,0 +1,89 @@
+package com.yvonne.birdstream.processor;
+
+import com.yvonne.birdstream.model.BirdObservation;
+import com.yvonne.birdstream.model.JsonCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateObservationFilterTest {
+
+    private static final long MEMORY = 1024 * 1024;
+    private static final long ROTATION = 60 * 60 * 1000L;
+    private static final LocalDateTime MORNING = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private static String observation(String id, String observer, double latitude, double longitude,
+                                      LocalDateTime date) {
+        return JsonCodec.writeObservation(
+            new BirdObservation(id, "Mourning Dove", 3, date, latitude, longitude, "San Diego", observer),
+            "HISTORICAL", 0L);
+    }
+
+    @Test
+    void buildsSightingKeyFromObserverCellDateAndSpecies() {
+        String key = DuplicateObservationFilter.sightingKey("OBS1", 32.7151, -117.1611, "2024-05-01T08:00:00", "Mourning Dove");
+        assertEquals("obs|OBS1|3271|-11717|2024-05-01|Mourning Dove", key);
+
+        // Same 0.01 degree cell and calendar date, different time of day
+        assertEquals(key, DuplicateObservationFilter.sightingKey("OBS1", 32.7199, -117.1601, "2024-05-01T17:30:00", "Mourning Dove"));
+
+        assertNotEquals(key, DuplicateObservationFilter.sightingKey("OBS1", 32.7251, -117.1611, "2024-05-01T08:00:00", "Mourning Dove"));
+        assertNotEquals(key, DuplicateObservationFilter.sightingKey("OBS1", 32.7151, -117.1611, "2024-05-02T08:00:00", "Mourning Dove"));
+
+        assertNull(DuplicateObservationFilter.sightingKey(null, 32.7151, -117.1611, "2024-05-01T08:00:00", "Mourning Dove"));
+        assertNull(DuplicateObservationFilter.sightingKey("OBS1", Double.NaN, -117.1611, "2024-05-01T08:00:00", "Mourning Dove"));
+        assertNull(DuplicateObservationFilter.sightingKey("OBS1", 32.7151, -117.1611, "2024-05", "Mourning Dove"));
+    }
+
+    @Test
+    void dropsRepeatedIdsAndSharedChecklists() {
+        DuplicateObservationFilter filter = new DuplicateObservationFilter(0.001, MEMORY, ROTATION, null);
+
+        assertTrue(filter.isFirstSighting(observation("A", "OBS1", 32.7151, -117.1611, MORNING)));
+        assertFalse(filter.isFirstSighting(observation("A", "OBS9", 40.0, -100.0, MORNING.plusYears(1))), "same ID");
+        assertFalse(filter.isFirstSighting(observation("B", "OBS1", 32.7155, -117.1615, MORNING.plusHours(3))),
+                    "same observer, cell, date and species");
+
+        assertTrue(filter.isFirstSighting(observation("C", "OBS2", 32.7151, -117.1611, MORNING)), "other observer");
+        assertTrue(filter.isFirstSighting(observation("D", "OBS1", 32.7351, -117.1611, MORNING)), "other cell");
+        assertTrue(filter.isFirstSighting(observation("E", "OBS1", 32.7151, -117.1611, MORNING.plusDays(1))), "other date");
+    }
+
+    @Test
+    void passesMalformedInputThrough() {
+        DuplicateObservationFilter filter = new DuplicateObservationFilter(0.001, MEMORY, ROTATION, null);
+
+        assertTrue(filter.isFirstSighting("not json"));
+        assertTrue(filter.isFirstSighting("not json"));
+        assertTrue(filter.isFirstSighting("[1, 2]"));
+        assertTrue(filter.isFirstSighting("{\"commonName\": \"Mourning Dove\"}"));
+        assertTrue(filter.isFirstSighting("{\"commonName\": \"Mourning Dove\"}"), "no ID and no sighting key");
+    }
+
+    @Test
+    void restoresCheckpointWithSameBudget() {
+        Path file = tempDir.resolve("dedup.bin");
+        String seen = observation("A", "OBS1", 32.7151, -117.1611, MORNING);
+
+        try (DuplicateObservationFilter filter = new DuplicateObservationFilter(0.001, MEMORY, ROTATION, file)) {
+            assertTrue(filter.isFirstSighting(seen));
+        }
+
+        try (DuplicateObservationFilter restored = new DuplicateObservationFilter(0.001, MEMORY, ROTATION, file)) {
+            assertFalse(restored.isFirstSighting(seen));
+            assertTrue(restored.isFirstSighting(observation("B", "OBS2", 32.7151, -117.1611, MORNING)));
+        }
+
+        // A different memory budget cannot reuse the bit arrays, so the filter starts empty
+        try (DuplicateObservationFilter resized = new DuplicateObservationFilter(0.001, MEMORY * 2, ROTATION, file)) {
+            assertTrue(resized.isFirstSighting(seen));
+        }
+    }
+}
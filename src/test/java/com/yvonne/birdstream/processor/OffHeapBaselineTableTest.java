@@ -0,0 +1,96 @@
+package com.yvonne.birdstream.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapBaselineTableTest {
+
+    private static final int KEYS = 500;
+    private static final TrendModel TREND = new TrendModel(0.98);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reopenedTableMatchesHeapTable() throws Exception {
+        Path file = tempDir.resolve("baselines.bin");
+        HeapBaselineTable heap = new HeapBaselineTable(TREND);
+        Random random = new Random(42);
+
+        // SpeciesBaseline recomputes its stats every 10 observations, so give each key a multiple of 10
+        List<String> arrivals = new ArrayList<>();
+        for (int s = 0; s < KEYS; s++) {
+            for (int c = 0; c < 3; c++) {
+                arrivals.addAll(Collections.nCopies(10 * (1 + random.nextInt(6)), "Species" + s + "_County" + c));
+            }
+        }
+        arrivals.add(0, "Species0_County0");
+        arrivals.addAll(Collections.nCopies(29, "Species0_County0"));
+        Collections.shuffle(arrivals, random);
+
+        try (OffHeapBaselineTable offHeap = new OffHeapBaselineTable(file, 10_000, TREND)) {
+            for (String key : arrivals) {
+                int year = 2010 + random.nextInt(15);
+                int month = 1 + random.nextInt(12);
+                int count = 1 + random.nextInt(200);
+                assertEquals(heap.addHistoricalObservation(key, year, month, count),
+                             offHeap.addHistoricalObservation(key, year, month, count),
+                             "established flag for " + key);
+            }
+        }
+
+        try (OffHeapBaselineTable reopened = new OffHeapBaselineTable(file, 10_000, TREND)) {
+            for (int s = 0; s < KEYS; s++) {
+                for (int c = 0; c < 3; c++) {
+                    String key = "Species" + s + "_County" + c;
+                    assertEquals(heap.getObservationCount(key), reopened.getObservationCount(key), key);
+                    assertEquals(heap.hasEnoughData(key), reopened.hasEnoughData(key), key);
+                    assertEquals(heap.getMean(key), reopened.getMean(key), 1e-9, key);
+                    assertEquals(heap.getStdDev(key), reopened.getStdDev(key), 1e-9, key);
+                    assertEquals(heap.getExpectedCount(key, 2024, 5), reopened.getExpectedCount(key, 2024, 5), 1e-9, key);
+                    assertEquals(heap.getExpectedStdDev(key), reopened.getExpectedStdDev(key), 1e-9, key);
+                }
+            }
+
+            // The "established" log flag survives the restart
+            String established = "Species0_County0";
+            assertTrue(reopened.hasEnoughData(established));
+            assertFalse(reopened.addHistoricalObservation(established, 2024, 5, 10));
+        }
+    }
+
+    @Test
+    void fullTableRejectsNewKeysAndKeepsUpdatingExistingOnes() {
+        try (OffHeapBaselineTable table = new OffHeapBaselineTable(16, TREND)) {
+            long maxKeys = (long) (table.capacity() * 0.75);
+            for (int i = 0; i < maxKeys + 10; i++) {
+                table.addHistoricalObservation("key" + i, 2020, 1, 5);
+            }
+
+            assertEquals(maxKeys, table.size());
+            assertEquals(10, table.getRejectedKeys());
+            assertEquals(0, table.getObservationCount("key" + (maxKeys + 5)));
+
+            table.addHistoricalObservation("key0", 2020, 1, 7);
+            assertEquals(2, table.getObservationCount("key0"));
+            assertEquals(6.0, table.getMean("key0"), 1e-9);
+        }
+    }
+
+    @Test
+    void sizesTableToPowerOfTwoSlotsOf240Bytes() {
+        // 3,000 keys at 75% load need 4,000 slots, rounded up to 4,096; plus the 24-byte header
+        try (OffHeapBaselineTable table = new OffHeapBaselineTable(3_000, TREND)) {
+            assertEquals(4096, table.capacity());
+            assertEquals(24 + 4096L * 240, table.byteSize());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.yvonne.birdstream.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RotatingBloomFilterTest {
+
+    private static final long MEMORY = 64 * 1024; // 32 KB, 262,144 bits per generation
+    private static final long NO_TIME_ROTATION = Long.MAX_VALUE;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sizesGenerationsForTargetRateAndMeetsIt() {
+        double target = 0.01;
+        RotatingBloomFilter filter = new RotatingBloomFilter(MEMORY, 2, target, NO_TIME_ROTATION);
+
+        // n = -m ln^2(2) / ln(p), k = (m / n) ln(2)
+        double bits = MEMORY / 2 * 8;
+        assertEquals((long) (-bits * Math.log(2) * Math.log(2) / Math.log(target)), filter.getCapacityPerGeneration());
+        assertEquals(7, filter.getHashFunctions());
+
+        // Fill one generation to capacity, then probe keys that were never added
+        long capacity = filter.getCapacityPerGeneration();
+        for (long i = 0; i < capacity; i++) {
+            filter.add("seen-" + i);
+        }
+        for (long i = 0; i < capacity; i++) {
+            assertTrue(filter.mightContain("seen-" + i));
+        }
+
+        int probes = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("unseen-" + i)) falsePositives++;
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate > target / 2 && rate < target * 1.5, "False-positive rate " + rate);
+    }
+
+    @Test
+    void rotatesWhenGenerationIsFull() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(MEMORY, 2, 0.001, NO_TIME_ROTATION);
+        long capacity = filter.getCapacityPerGeneration();
+
+        for (long i = 0; i < capacity; i++) filter.add("first-" + i);
+        for (long i = 0; i < capacity; i++) filter.add("second-" + i); // Rotates on the first insert
+        for (long i = 0; i < capacity; i++) {
+            assertTrue(filter.mightContain("first-" + i), "First generation is still checked");
+            assertTrue(filter.mightContain("second-" + i));
+        }
+
+        filter.add("third"); // Rotates again, clearing the first generation
+        int remembered = 0;
+        for (long i = 0; i < capacity; i++) {
+            if (filter.mightContain("first-" + i)) remembered++;
+        }
+        assertTrue(remembered < capacity / 100, remembered + " of " + capacity + " keys survived rotation");
+        for (long i = 0; i < capacity; i++) {
+            assertTrue(filter.mightContain("second-" + i));
+        }
+    }
+
+    @Test
+    void rotatesWhenIntervalPasses() throws Exception {
+        RotatingBloomFilter filter = new RotatingBloomFilter(MEMORY, 2, 0.001, 50);
+
+        filter.add("old");
+        Thread.sleep(80);
+        filter.add("middle"); // Rotates; "old" stays in the previous generation
+        assertTrue(filter.mightContain("old"));
+
+        Thread.sleep(80);
+        filter.add("new"); // Rotates back onto the generation holding "old"
+        assertFalse(filter.mightContain("old"));
+        assertTrue(filter.mightContain("middle"));
+        assertTrue(filter.mightContain("new"));
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() throws Exception {
+        Path file = tempDir.resolve("filter.bin");
+        RotatingBloomFilter original = new RotatingBloomFilter(MEMORY, 2, 0.01, NO_TIME_ROTATION);
+        long capacity = original.getCapacityPerGeneration();
+        for (long i = 0; i < capacity + 1_000; i++) {
+            original.add("key-" + i); // Spills into the second generation
+        }
+        original.save(file);
+
+        RotatingBloomFilter restored = new RotatingBloomFilter(MEMORY, 2, 0.01, NO_TIME_ROTATION);
+        assertTrue(restored.load(file));
+        for (long i = 0; i < capacity + 1_000; i++) {
+            assertTrue(restored.mightContain("key-" + i));
+        }
+        for (int i = 0; i < 50_000; i++) {
+            assertEquals(original.mightContain("probe-" + i), restored.mightContain("probe-" + i));
+        }
+
+        // The restored insertion counts carry on: one more generation's worth rotates out the first keys
+        for (long i = 0; i < capacity; i++) {
+            original.add("more-" + i);
+            restored.add("more-" + i);
+        }
+        for (int i = 0; i < 50_000; i++) {
+            assertEquals(original.mightContain("key-" + i), restored.mightContain("key-" + i));
+        }
+    }
+
+    @Test
+    void rejectsCheckpointWithDifferentBudget() throws Exception {
+        Path file = tempDir.resolve("filter.bin");
+        RotatingBloomFilter original = new RotatingBloomFilter(MEMORY, 2, 0.01, NO_TIME_ROTATION);
+        original.add("key");
+        original.save(file);
+
+        RotatingBloomFilter larger = new RotatingBloomFilter(MEMORY * 2, 2, 0.01, NO_TIME_ROTATION);
+        assertFalse(larger.load(file));
+        assertFalse(larger.mightContain("key"));
+
+        RotatingBloomFilter moreGenerations = new RotatingBloomFilter(MEMORY, 4, 0.01, NO_TIME_ROTATION);
+        assertFalse(moreGenerations.load(file));
+
+        assertFalse(new RotatingBloomFilter(MEMORY, 2, 0.01, NO_TIME_ROTATION).load(tempDir.resolve("missing.bin")));
+    }
+}
@@ -0,0 +1,80 @@
+package com.yvonne.birdstream.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendModelTest {
+
+    // count = 20 + 8t + 15 in spring, t = (year - 2015) / 10, plus noise
+    private static double truth(int year, int month) {
+        double t = (year - 2015) / 10.0;
+        return 20 + 8 * t + (month >= 3 && month <= 5 ? 15 : 0);
+    }
+
+    @Test
+    void fitsTrendAndReportsResidualSpread() {
+        TrendModel model = new TrendModel(1.0);
+        MemorySegment state = model.newState();
+        Random random = new Random(7);
+
+        double noise = 2.0;
+        for (int i = 0; i < 5_000; i++) {
+            int year = 2000 + random.nextInt(25);
+            int month = 1 + random.nextInt(12);
+            model.update(state, year, month, (int) Math.round(truth(year, month) + noise * random.nextGaussian()));
+        }
+
+        assertTrue(model.isReady(state));
+        assertEquals(truth(2024, 4), model.predict(state, 2024, 4), 0.5);
+        assertEquals(truth(2024, 7), model.predict(state, 2024, 7), 0.5);
+
+        // Residual spread is the noise (plus rounding), far below the flat spread caused by the season effect
+        double residual = model.getResidualStdDev(state);
+        assertEquals(Math.sqrt(noise * noise + 1.0 / 12), residual, 0.15);
+    }
+
+    @Test
+    void holdsTrendAtLastTrainedYearOneYearPastTheData() {
+        TrendModel model = new TrendModel(1.0);
+        MemorySegment state = model.newState();
+
+        // Counts growing faster every year through 2024, like the bundled Mourning Dove history
+        for (int year = 2005; year <= 2024; year++) {
+            for (int month = 1; month <= 12; month++) {
+                model.update(state, year, month, 1 + (year - 2005) * (year - 2005) / 10);
+            }
+        }
+
+        double lastYear = model.predict(state, 2024, 4);
+        assertEquals(lastYear, model.predict(state, 2025, 4), 1e-9);
+        assertEquals(lastYear, model.predict(state, 2030, 4), 1e-9);
+        assertTrue(lastYear <= 1 + 19 * 19 / 10, "Fitted value stays within the observed counts: " + lastYear);
+        assertEquals(model.predict(state, 2005, 7), model.predict(state, 1990, 7), 1e-9);
+    }
+
+    @Test
+    void forgettingStaysFiniteWithoutExcitation() {
+        TrendModel model = new TrendModel(0.9);
+        MemorySegment state = model.newState();
+
+        // Only winter observations in a single year: most directions of P are never excited
+        for (int i = 0; i < 100_000; i++) {
+            model.update(state, 2020, 1, 10);
+        }
+
+        assertEquals(10.0, model.predict(state, 2020, 1), 1e-6);
+        assertTrue(Double.isFinite(model.predict(state, 2030, 6)));
+        assertTrue(Double.isFinite(model.getResidualStdDev(state)));
+    }
+
+    @Test
+    void rejectsInvalidForgettingFactor() {
+        assertThrows(IllegalArgumentException.class, () -> new TrendModel(0.0));
+        assertThrows(IllegalArgumentException.class, () -> new TrendModel(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new TrendModel(Double.NaN));
+    }
+}
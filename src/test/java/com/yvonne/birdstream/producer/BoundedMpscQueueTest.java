@@ -0,0 +1,75 @@
+package com.yvonne.birdstream.producer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedMpscQueueTest {
+
+    @Test
+    void fifoAndBoundedCapacity() {
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(5);
+        assertEquals(8, queue.capacity()); // Rounded up to a power of two
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(8));
+        assertEquals(8, queue.size());
+
+        // Wrap around the ring a few times
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, queue.poll());
+            assertTrue(queue.offer(i + 8));
+        }
+        for (int i = 100; i < 108; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void concurrentProducersKeepTheirOwnOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        BoundedMpscQueue<long[]> queue = new BoundedMpscQueue<>(1024);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!queue.offer(element)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+
+        long[] next = new long[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            long[] element = queue.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = (int) element[0];
+            assertEquals(next[producer], element[1], "out of order for producer " + producer);
+            next[producer]++;
+            received++;
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+}
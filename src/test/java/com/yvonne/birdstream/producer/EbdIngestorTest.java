@@ -0,0 +1,179 @@
+package com.yvonne.birdstream.producer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.yvonne.birdstream.model.BirdObservation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EbdIngestorTest {
+
+    // Columns in a different order from the real export, with extra columns we ignore
+    private static final String HEADER = String.join("\t",
+        "GLOBAL UNIQUE IDENTIFIER", "TAXONOMIC ORDER", "COMMON NAME", "OBSERVATION COUNT", "STATE CODE",
+        "COUNTY", "COUNTY CODE", "LATITUDE", "LONGITUDE", "OBSERVATION DATE", "TIME OBSERVATIONS STARTED",
+        "OBSERVER ID", "TRIP COMMENTS");
+
+    private static final String FIXTURE =
+        HEADER + "\n" +
+        row("URN:1", "Mourning Dove", "5", "US-CA", "San Diego", "US-CA-073", "32.71", "-117.16", "2020-04-12", "07:30:00") + "\n" +
+        row("URN:2", "Mourning Dove", "X", "US-CA", "San Diego", "US-CA-073", "32.71", "-117.16", "2020-04-12", "") + "\n" +
+        row("URN:3", "California Towhee", "12", "US-CA", "Orange", "US-CA-059", "33.70", "-117.80", "2021-07-01", "") + "\r\n" +
+        "URN:4\t1\tMourning Dove\t3\tUS-CA\n" + // Truncated row
+        row("URN:5", "Mourning Dove", "2", "US-CA", "", "", "32.50", "-117.00", "2019-12-31", "18:05:00") + "\r\n" +
+        row("URN:6", "Mourning Dove", "7", "US-CA", "San Diego", "US-CA-073", "-32.5", "-117.25", "not-a-date", "") + "\n" +
+        row("URN:7", "Mourning Dove", "40", "US-CA", "San Diego", "US-CA-073", "32.80", "-116.90", "2024-05-05", "") + "\n" +
+        row("URN:8", "Mourning Dove", "1", "US-CA", "San Diego", "US-CA-073", "32.81", "-116.91", "2024-05-06", ""); // No final newline
+
+    private static String row(String id, String name, String count, String state, String county, String countyCode,
+                              String latitude, String longitude, String date, String time) {
+        return String.join("\t", id, "1000", name, count, state, county, countyCode,
+                           latitude, longitude, date, time, "obs" + id.substring(4), "a comment");
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private Map<String, BirdObservation> ingest(String content, int threads, long chunkSize) throws IOException {
+        Path file = tempDir.resolve("ebd-" + threads + "-" + chunkSize + ".txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        Map<String, BirdObservation> rows = new ConcurrentHashMap<>();
+        long delivered = new EbdIngestor(file, threads, chunkSize).ingest(obs -> {
+            assertNull(rows.put(obs.getId(), obs), "row delivered twice: " + obs.getId());
+        });
+        assertEquals(rows.size(), delivered);
+        return rows;
+    }
+
+    @Test
+    void parsesFieldsByHeaderName() throws IOException {
+        Map<String, BirdObservation> rows = ingest(FIXTURE, 1, 1 << 20);
+
+        BirdObservation dove = rows.get("URN:1");
+        assertEquals("Mourning Dove", dove.getCommonName());
+        assertEquals(5, dove.getCount());
+        assertEquals(LocalDateTime.of(2020, 4, 12, 7, 30), dove.getObservationDate());
+        assertEquals(32.71, dove.getLatitude(), 1e-9);
+        assertEquals(-117.16, dove.getLongitude(), 1e-9);
+        assertEquals("San Diego", dove.getCounty()); // Same naming as the synthetic stream
+        assertEquals("US-CA-073", dove.getCountyCode());
+        assertEquals("obs1", dove.getObserverId());
+
+        // CRLF line endings, blank time defaults to 08:00
+        BirdObservation towhee = rows.get("URN:3");
+        assertEquals(12, towhee.getCount());
+        assertEquals("US-CA-059", towhee.getCountyCode());
+        assertEquals(LocalDateTime.of(2021, 7, 1, 8, 0), towhee.getObservationDate());
+
+        // Blank county falls back to the state code
+        BirdObservation unknown = rows.get("URN:5");
+        assertEquals("Unknown", unknown.getCounty());
+        assertEquals("US-CA", unknown.getCountyCode());
+        assertEquals(LocalDateTime.of(2019, 12, 31, 18, 5), unknown.getObservationDate());
+
+        // Last row without a trailing newline
+        assertEquals(1, rows.get("URN:8").getCount());
+    }
+
+    @Test
+    void skipsPresenceOnlyTruncatedAndMalformedRows() throws IOException {
+        Path file = tempDir.resolve("ebd.txt");
+        Files.writeString(file, FIXTURE, StandardCharsets.UTF_8);
+
+        EbdIngestor ingestor = new EbdIngestor(file, 2, 1 << 20);
+        Map<String, BirdObservation> rows = new ConcurrentHashMap<>();
+        assertEquals(5, ingestor.ingest(obs -> rows.put(obs.getId(), obs)));
+
+        assertEquals(new TreeSet<>(List.of("URN:1", "URN:3", "URN:5", "URN:7", "URN:8")),
+                     new TreeSet<>(rows.keySet()));
+        assertEquals(3, ingestor.getRowsSkipped());        // X count, truncated row, bad date
+        assertEquals(1, ingestor.getRowsPresenceOnly());
+    }
+
+    @Test
+    void sameRowsForEveryChunkSize() throws IOException {
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 500; i++) {
+            content.append(row("URN:" + (1000 + i), "Mourning Dove", String.valueOf(1 + i % 50), "US-CA",
+                               "San Diego", "US-CA-073", "32.7", "-117.1", "2020-01-0" + (1 + i % 9), ""))
+                   .append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        String text = content.toString();
+
+        Map<String, BirdObservation> reference = ingest(text, 1, 1 << 20);
+        assertEquals(500, reference.size());
+
+        // Cuts land mid-field, on '\r', right before '\n' and right after it
+        for (long chunkSize : new long[] {1, 7, 64, 97, 1000}) {
+            Map<String, BirdObservation> rows = ingest(text, 4, chunkSize);
+            assertEquals(reference.keySet(), rows.keySet(), "chunk size " + chunkSize);
+            for (BirdObservation obs : rows.values()) {
+                assertEquals(reference.get(obs.getId()).getCount(), obs.getCount());
+            }
+        }
+    }
+
+    @Test
+    void failingSinkStopsIngestionBeforeReturning() throws Exception {
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 20_000; i++) {
+            content.append(row("URN:" + i, "Mourning Dove", "3", "US-CA", "San Diego", "US-CA-073",
+                               "32.7", "-117.1", "2020-01-01", "")).append('\n');
+        }
+        Path file = tempDir.resolve("large.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        AtomicInteger calls = new AtomicInteger();
+        EbdIngestor ingestor = new EbdIngestor(file, 4, 4096);
+        IOException failure = assertThrows(IOException.class, () -> ingestor.ingest(obs -> {
+            if (calls.incrementAndGet() == 100) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+        }));
+        assertInstanceOf(UncheckedIOException.class, failure.getCause());
+
+        // No chunk task may still be calling the sink after ingest() has thrown
+        int afterFailure = calls.get();
+        Thread.sleep(200);
+        assertEquals(afterFailure, calls.get());
+        assertTrue(afterFailure < 20_000);
+    }
+
+    @Test
+    void interruptIsReportedNotTreatedAsCompletion() throws Exception {
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 2_000; i++) {
+            content.append(row("URN:" + i, "Mourning Dove", "3", "US-CA", "San Diego", "US-CA-073",
+                               "32.7", "-117.1", "2020-01-01", "")).append('\n');
+        }
+        Path file = tempDir.resolve("interrupted.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        Thread caller = Thread.currentThread();
+        EbdIngestor ingestor = new EbdIngestor(file, 2, 1024);
+        assertThrows(InterruptedIOException.class, () -> ingestor.ingest(obs -> {
+            caller.interrupt();
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(Thread.interrupted()); // Interrupt status kept (and cleared here for the next test)
+    }
+}
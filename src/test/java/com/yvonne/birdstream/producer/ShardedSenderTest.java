@@ -0,0 +1,89 @@
+package com.yvonne.birdstream.producer;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yvonne.birdstream.model.BirdObservation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedSenderTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final LocalDateTime DATE = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    private static MockProducer<String, String> mockProducer() {
+        return new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+    }
+
+    private static BirdObservation observation(String id, LocalDateTime date) {
+        return new BirdObservation(id, "Mourning Dove", 1, date, 32.7, -117.1, "San Diego", "OBS1");
+    }
+
+    @Test
+    void keepsPerKeyOrderAndLosesNothingOnClose() throws Exception {
+        MockProducer<String, String> producer = mockProducer();
+        int threads = 8;
+        int perThread = 5_000;
+
+        ShardedSender sender = new ShardedSender(producer, "test", 4, 64, 16);
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            senders.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // Each thread owns its keys, so the order per key is the send order
+                    sender.send("key" + thread + "_" + (i % 25), observation(String.valueOf(i), DATE), "SYNTHETIC");
+                }
+            }));
+        }
+        for (Thread thread : senders) {
+            thread.join();
+        }
+        sender.close(); // Small queues: most records are still queued when close starts
+
+        List<ProducerRecord<String, String>> history = producer.history();
+        assertEquals(threads * perThread, history.size());
+        assertEquals(threads * perThread, sender.getRecordsSent());
+        assertEquals(0, sender.getSendErrors());
+        assertEquals(0, sender.getQueueDepth());
+
+        Map<String, Integer> lastId = new HashMap<>();
+        for (ProducerRecord<String, String> record : history) {
+            int id = mapper.readTree(record.value()).get("id").asInt();
+            Integer previous = lastId.put(record.key(), id);
+            assertTrue(previous == null || previous < id, "out of order for " + record.key());
+        }
+    }
+
+    @Test
+    void serializationFailureIsCountedAndWorkerKeepsGoing() {
+        MockProducer<String, String> producer = mockProducer();
+        ShardedSender sender = new ShardedSender(producer, "test", 1, 16, 4);
+
+        sender.send("dove", observation("1", DATE), "SYNTHETIC");
+        sender.send("dove", observation("2", null), "SYNTHETIC"); // No date: JsonCodec throws
+        sender.send("dove", observation("3", DATE), "SYNTHETIC");
+        sender.close();
+
+        assertEquals(1, sender.getSendErrors());
+        assertEquals(2, sender.getRecordsSent());
+        assertEquals(2, producer.history().size());
+    }
+
+    @Test
+    void rejectsSendAfterClose() {
+        ShardedSender sender = new ShardedSender(mockProducer(), "test", 2, 16, 4);
+        sender.close();
+        assertThrows(IllegalStateException.class, () -> sender.send("dove", observation("1", DATE), "SYNTHETIC"));
+    }
+}
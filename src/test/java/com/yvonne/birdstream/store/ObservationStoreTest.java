@@ -0,0 +1,187 @@
+package com.yvonne.birdstream.store;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.yvonne.birdstream.model.BirdObservation;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObservationStoreTest {
+
+    private static final int THREADS = 8;
+    private static final int ROWS_PER_THREAD = 40_000;
+    private static final int SPECIES = 300;
+    private static final int COUNTIES = 20;
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path store;
+    private static final List<Row> rows = Collections.synchronizedList(new ArrayList<>());
+
+    private record Row(String species, String county, int year, int month, int count) {}
+
+    // Written once from several threads; most rows fall in four years so runs fill up and flush mid-ingest
+    @BeforeAll
+    static void writeStore() throws IOException {
+        store = tempDir.resolve("store");
+        try (ObservationStoreWriter writer = new ObservationStoreWriter(store)) {
+            IntStream.range(0, THREADS).parallel().forEach(thread -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < ROWS_PER_THREAD; i++) {
+                    int year = random.nextInt(100) == 0 ? 2005 + random.nextInt(13) : 2018 + random.nextInt(4);
+                    Row row = new Row("Species" + random.nextInt(SPECIES), "County" + random.nextInt(COUNTIES),
+                                      year, 1 + random.nextInt(12), 1 + random.nextInt(60));
+                    try {
+                        writer.append(new BirdObservation("ID" + thread + "_" + i, row.species(), row.count(),
+                            LocalDateTime.of(row.year(), row.month(), 1, 8, 0), 32.7, -117.1, row.county(), "OBS"));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    rows.add(row);
+                }
+            });
+        }
+    }
+
+    private static void assertMatchesBruteForce(Map<String, BaselineSummary> actual, BaselineQuery query) {
+        Map<String, List<Integer>> expected = new HashMap<>();
+        synchronized (rows) {
+            for (Row row : rows) {
+                if (row.year() < query.getFromYear() || row.year() > query.getToYear()) continue;
+                if (query.getSeason() != null && Season.ofMonth(row.month()) != query.getSeason()) continue;
+                if (query.getSpecies() != null && !query.getSpecies().equals(row.species())) continue;
+                expected.computeIfAbsent(row.species() + "_" + row.county(), _ -> new ArrayList<>()).add(row.count());
+            }
+        }
+
+        assertEquals(expected.keySet(), actual.keySet(), query.toString());
+        expected.forEach((key, counts) -> {
+            double mean = counts.stream().mapToInt(Integer::intValue).average().orElseThrow();
+            double variance = counts.stream().mapToDouble(c -> (c - mean) * (c - mean)).sum() / counts.size();
+
+            BaselineSummary summary = actual.get(key);
+            assertEquals(counts.size(), summary.getObservationCount(), key);
+            assertEquals(mean, summary.getMean(), 1e-9, key);
+            assertEquals(Math.sqrt(variance), summary.getStdDev(), 1e-9, key);
+        });
+    }
+
+    @Test
+    void baselinesMatchBruteForce() throws IOException {
+        assertEquals(THREADS * ROWS_PER_THREAD, rows.size());
+
+        List<BaselineQuery> queries = List.of(
+            BaselineQuery.forPeriod(2000, 2030),
+            BaselineQuery.forPeriod(2019, 2020),
+            new BaselineQuery(null, 2005, 2017, Season.WINTER),
+            new BaselineQuery("Species7", 2018, 2021, null),
+            new BaselineQuery("Species7", 2019, 2019, Season.SPRING),
+            new BaselineQuery("Species299", 2005, 2021, Season.FALL));
+
+        try (ObservationStoreReader reader = new ObservationStoreReader(store)) {
+            for (BaselineQuery query : queries) {
+                assertMatchesBruteForce(reader.computeBaselines(query), query);
+            }
+            assertTrue(reader.computeBaselines(new BaselineQuery("Dodo", 2000, 2030, null)).isEmpty());
+        }
+    }
+
+    @Test
+    void blockStatisticsPruneScans() throws IOException {
+        try (ObservationStoreReader reader = new ObservationStoreReader(store)) {
+            int blocks = reader.getBlockCount();
+            assertTrue(blocks > 20, "expected several runs per year, got " + blocks + " blocks");
+
+            assertEquals(blocks, reader.countCandidateBlocks(BaselineQuery.forPeriod(2000, 2030)));
+            assertEquals(0, reader.countCandidateBlocks(BaselineQuery.forPeriod(2030, 2040)));
+            assertEquals(0, reader.countCandidateBlocks(new BaselineQuery("Dodo", 2000, 2030, null)));
+
+            // Blocks hold one year and each run is sorted by species, so a single species and year
+            // touches about one block per run (a year here is one full run of 4 blocks plus a partial run)
+            int oneSpeciesOneYear = reader.countCandidateBlocks(new BaselineQuery("Species7", 2019, 2019, null));
+            int oneYear = reader.countCandidateBlocks(BaselineQuery.forPeriod(2019, 2019));
+            assertTrue(oneSpeciesOneYear >= 1 && oneSpeciesOneYear < oneYear,
+                       oneSpeciesOneYear + " of " + oneYear + " blocks for one species");
+            assertTrue(oneYear * 3 <= blocks, oneYear + " of " + blocks + " blocks for one year");
+        }
+    }
+
+    @Test
+    void truncatedStoreReadsUpToLastCompleteBlock() throws IOException {
+        Path copy = tempDir.resolve("truncated");
+        Files.createDirectories(copy);
+        for (String name : List.of(StoreFormat.DATA_FILE, StoreFormat.SPECIES_DICT, StoreFormat.COUNTY_DICT)) {
+            Files.copy(store.resolve(name), copy.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        int fullBlocks;
+        Map<String, BaselineSummary> full;
+        try (ObservationStoreReader reader = new ObservationStoreReader(store)) {
+            fullBlocks = reader.getBlockCount();
+            full = reader.computeBaselines(BaselineQuery.forPeriod(2000, 2030));
+        }
+
+        // Cut into the last block, as a crashed ingest would leave it
+        truncate(copy.resolve(StoreFormat.DATA_FILE), Files.size(copy.resolve(StoreFormat.DATA_FILE)) - 1000);
+        try (ObservationStoreReader reader = new ObservationStoreReader(copy)) {
+            assertEquals(fullBlocks - 1, reader.getBlockCount());
+            Map<String, BaselineSummary> partial = reader.computeBaselines(BaselineQuery.forPeriod(2000, 2030));
+            long partialRows = partial.values().stream().mapToLong(BaselineSummary::getObservationCount).sum();
+            long fullRows = full.values().stream().mapToLong(BaselineSummary::getObservationCount).sum();
+            assertTrue(partialRows > 0 && partialRows < fullRows);
+            partial.forEach((key, summary) ->
+                assertTrue(summary.getObservationCount() <= full.get(key).getObservationCount(), key));
+        }
+
+        // Cut inside the first block header
+        truncate(copy.resolve(StoreFormat.DATA_FILE), StoreFormat.FILE_HEADER_SIZE + 10);
+        try (ObservationStoreReader reader = new ObservationStoreReader(copy)) {
+            assertEquals(0, reader.getBlockCount());
+            assertTrue(reader.computeBaselines(BaselineQuery.forPeriod(2000, 2030)).isEmpty());
+        }
+    }
+
+    @Test
+    void idsMissingFromATruncatedDictionaryAreSkipped() throws IOException {
+        Path copy = tempDir.resolve("short-dictionary");
+        Files.createDirectories(copy);
+        for (String name : List.of(StoreFormat.DATA_FILE, StoreFormat.COUNTY_DICT)) {
+            Files.copy(store.resolve(name), copy.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+        }
+        List<String> species = Files.readAllLines(store.resolve(StoreFormat.SPECIES_DICT), StandardCharsets.UTF_8);
+        Files.write(copy.resolve(StoreFormat.SPECIES_DICT), species.subList(0, 10), StandardCharsets.UTF_8);
+
+        try (ObservationStoreReader reader = new ObservationStoreReader(copy)) {
+            Map<String, BaselineSummary> baselines = reader.computeBaselines(BaselineQuery.forPeriod(2000, 2030));
+            assertFalse(baselines.isEmpty());
+            for (String key : baselines.keySet()) {
+                assertTrue(species.subList(0, 10).contains(key.substring(0, key.indexOf('_'))), key);
+            }
+        }
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}